@@ -0,0 +1,84 @@
+package com.proxy;
+
+public class ByteRange {
+
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private final long start;
+    private final long end;
+
+    private ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Resolves a single "bytes=" range against an entity of the given length.
+     * Returns null when the header is malformed or asks for several ranges, in
+     * which case the full entity should be served instead.
+     */
+    public static ByteRange parse(String rangeHeader, long length) {
+        if (rangeHeader == null) {
+            return null;
+        }
+
+        String trimmed = rangeHeader.trim();
+        if (!trimmed.toLowerCase().startsWith("bytes=")) {
+            return null;
+        }
+
+        String spec = trimmed.substring("bytes=".length()).trim();
+        if (spec.isEmpty() || spec.indexOf(',') >= 0) {
+            return null;
+        }
+
+        int dashIndex = spec.indexOf('-');
+        if (dashIndex == -1) {
+            return null;
+        }
+
+        String firstPart = spec.substring(0, dashIndex).trim();
+        String lastPart = spec.substring(dashIndex + 1).trim();
+
+        try {
+            if (firstPart.isEmpty()) {
+                if (lastPart.isEmpty()) {
+                    return null;
+                }
+                long suffixLength = Long.parseLong(lastPart);
+                if (suffixLength <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffixLength), length - 1);
+            }
+
+            long start = Long.parseLong(firstPart);
+            long end = lastPart.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastPart);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            return new ByteRange(start, Math.min(end, length - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean isSatisfiable() {
+        return this != UNSATISFIABLE;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+}
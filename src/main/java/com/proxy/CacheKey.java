@@ -0,0 +1,171 @@
+package com.proxy;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CacheKey {
+
+    private static final Map<String, Set<String>> ignoredQueryParams = new ConcurrentHashMap<>();
+    private static final Set<String> sortedQueryHosts = ConcurrentHashMap.newKeySet();
+
+    public static String of(String method, String url) {
+        return method.toUpperCase() + ":" + normalizeUrl(url);
+    }
+
+    /**
+     * Canonicalizes a URL so equivalent spellings share one cache entry: scheme
+     * and host are lower-cased, default ports and fragments dropped, and
+     * percent-encoding normalized. Per-host query rules are applied last.
+     * User info is kept verbatim so credentialed and anonymous requests never
+     * share an entry. Unparseable input is returned trimmed but otherwise untouched.
+     */
+    public static String normalizeUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        String trimmedUrl = url.trim();
+
+        URL parsed;
+        try {
+            parsed = new URL(trimmedUrl);
+        } catch (MalformedURLException e) {
+            return trimmedUrl;
+        }
+
+        String scheme = parsed.getProtocol().toLowerCase();
+        String host = parsed.getHost().toLowerCase();
+        while (host.endsWith(".")) {
+            host = host.substring(0, host.length() - 1);
+        }
+        int port = parsed.getPort();
+        if (port == parsed.getDefaultPort()) {
+            port = -1;
+        }
+
+        String path = normalizePercentEncoding(parsed.getPath());
+        if (path.isEmpty()) {
+            path = "/";
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(scheme).append("://");
+        if (parsed.getUserInfo() != null) {
+            builder.append(parsed.getUserInfo()).append('@');
+        }
+        builder.append(host);
+        if (port != -1) {
+            builder.append(':').append(port);
+        }
+        builder.append(path);
+
+        String query = normalizeQuery(host, parsed.getQuery());
+        if (query != null) {
+            builder.append('?').append(query);
+        }
+        return builder.toString();
+    }
+
+    public static boolean ignoreQueryParam(String host, String param) {
+        return ignoredQueryParams
+                .computeIfAbsent(host.trim().toLowerCase(), h -> ConcurrentHashMap.newKeySet())
+                .add(param.trim());
+    }
+
+    public static boolean unignoreQueryParam(String host, String param) {
+        Set<String> params = ignoredQueryParams.get(host.trim().toLowerCase());
+        return params != null && params.remove(param.trim());
+    }
+
+    public static void setSortQuery(String host, boolean sort) {
+        if (sort) {
+            sortedQueryHosts.add(host.trim().toLowerCase());
+        } else {
+            sortedQueryHosts.remove(host.trim().toLowerCase());
+        }
+    }
+
+    public static Map<String, String> describeRules() {
+        Map<String, String> rules = new TreeMap<>();
+        ignoredQueryParams.forEach((host, params) -> {
+            if (!params.isEmpty()) {
+                rules.put(host, "ignore " + new TreeSet<>(params));
+            }
+        });
+        for (String host : sortedQueryHosts) {
+            rules.merge(host, "sort", (existing, added) -> existing + ", " + added);
+        }
+        return rules;
+    }
+
+    private static String normalizeQuery(String host, String query) {
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+
+        Set<String> ignored = ignoredQueryParams.getOrDefault(host, Collections.emptySet());
+        List<String> params = new ArrayList<>();
+        for (String param : query.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            String normalized = normalizePercentEncoding(param);
+            int equalsIndex = normalized.indexOf('=');
+            String name = equalsIndex == -1 ? normalized : normalized.substring(0, equalsIndex);
+            if (!ignored.contains(name)) {
+                params.add(normalized);
+            }
+        }
+
+        if (params.isEmpty()) {
+            return null;
+        }
+        if (sortedQueryHosts.contains(host)) {
+            Collections.sort(params);
+        }
+        return String.join("&", params);
+    }
+
+    // Upper-cases escape hex digits and decodes escapes of unreserved characters;
+    // reserved characters stay encoded because decoding them changes meaning.
+    private static String normalizePercentEncoding(String value) {
+        if (value.indexOf('%') == -1) {
+            return value;
+        }
+
+        StringBuilder builder = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '%' && i + 2 < value.length() && isHex(value.charAt(i + 1)) && isHex(value.charAt(i + 2))) {
+                int decoded = Integer.parseInt(value.substring(i + 1, i + 3), 16);
+                if (isUnreserved((char) decoded)) {
+                    builder.append((char) decoded);
+                } else {
+                    builder.append('%').append(value.substring(i + 1, i + 3).toUpperCase());
+                }
+                i += 3;
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+}
@@ -1,21 +1,65 @@
 package com.proxy;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class CacheManager {
 
-    private static final ConcurrentHashMap<String, byte[]> cache =
+    private static final ConcurrentHashMap<String, VariantSet> cache =
             new ConcurrentHashMap<>();
+    private static final AtomicLong totalBytes = new AtomicLong();
+    private static final Object evictionLock = new Object();
 
-    public static void put(String key, byte[] response) {
-        cache.put(key, response);
+    /**
+     * Stores a response as one variant of the key, selected by the request
+     * headers the response names in Vary. A response with a different Vary
+     * list than the stored variants replaces them all; "Vary: *" is never cached.
+     */
+    public static boolean put(String key, List<String> requestHeaders, CachedResponse response) {
+        List<String> varyHeaders = parseVary(response.getHeader("Vary"));
+        if (varyHeaders == null) {
+            return false;
+        }
+        long maxBytes = ProxyConfig.getLong(ProxyConfig.CACHE_MAX_BYTES);
+        if (maxBytes > 0 && response.getSize() > maxBytes) {
+            return false;
+        }
+
+        cache.compute(key, (k, existing) -> {
+            VariantSet variants;
+            if (existing != null && existing.varyHeaders.equals(varyHeaders)) {
+                variants = existing;
+            } else {
+                variants = new VariantSet(varyHeaders);
+                if (existing != null) {
+                    totalBytes.addAndGet(-existing.bytes);
+                }
+            }
+            CachedResponse previous = variants.responses.put(variants.selectorFor(requestHeaders), response);
+            long change = response.getSize() - (previous == null ? 0 : previous.getSize());
+            variants.bytes += change;
+            totalBytes.addAndGet(change);
+            variants.lastAccess = System.nanoTime();
+            return variants;
+        });
+
+        evictToBudget();
+        return true;
     }
 
-    public static byte[] get(String key) {
-        return cache.get(key);
+    public static CachedResponse get(String key, List<String> requestHeaders) {
+        VariantSet variants = cache.get(key);
+        if (variants == null) {
+            return null;
+        }
+        variants.lastAccess = System.nanoTime();
+        return variants.responses.get(variants.selectorFor(requestHeaders));
     }
 
     public static boolean contains(String key) {
@@ -23,15 +67,63 @@ public class CacheManager {
     }
 
     public static int size() {
-        return cache.size();
+        int total = 0;
+        for (VariantSet variants : cache.values()) {
+            total += variants.responses.size();
+        }
+        return total;
+    }
+
+    public static long totalBytes() {
+        return totalBytes.get();
     }
 
     public static void clear() {
-        cache.clear();
+        for (String key : cache.keySet()) {
+            removeKey(key);
+        }
+    }
+
+    /**
+     * Evicts least recently used URLs (with all their variants) once the cache
+     * is over its byte budget. Eviction goes down to 90% of the budget so that
+     * a full cache does not re-sort its entries on every insert.
+     */
+    public static int evictToBudget() {
+        long maxBytes = ProxyConfig.getLong(ProxyConfig.CACHE_MAX_BYTES);
+        if (maxBytes <= 0 || totalBytes.get() <= maxBytes) {
+            return 0;
+        }
+
+        synchronized (evictionLock) {
+            long target = maxBytes - maxBytes / 10;
+            // Snapshot access times first; they keep changing while we sort.
+            List<Map.Entry<String, Long>> byAccess = new ArrayList<>();
+            cache.forEach((key, variants) -> byAccess.add(Map.entry(key, variants.lastAccess)));
+            byAccess.sort(Map.Entry.comparingByValue());
+
+            int evicted = 0;
+            for (Map.Entry<String, Long> entry : byAccess) {
+                if (totalBytes.get() <= target) {
+                    break;
+                }
+                if (removeKey(entry.getKey())) {
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
     }
 
     public static Set<String> keys() {
-        return Collections.unmodifiableSet(new TreeSet<>(cache.keySet()));
+        Set<String> keys = new TreeSet<>();
+        cache.forEach((key, variants) -> {
+            int count = variants.responses.size();
+            keys.add(variants.varyHeaders.isEmpty()
+                    ? key
+                    : key + " (vary " + String.join(",", variants.varyHeaders) + ": " + count + " variants)");
+        });
+        return Collections.unmodifiableSet(keys);
     }
 
     public static boolean removeByUrl(String url) {
@@ -42,6 +134,7 @@ public class CacheManager {
         if (trimmedUrl.isEmpty()) {
             return false;
         }
+        String normalizedUrl = CacheKey.normalizeUrl(trimmedUrl);
 
         boolean removed = false;
         for (String key : cache.keySet()) {
@@ -50,10 +143,65 @@ public class CacheManager {
                 continue;
             }
             String cachedUrl = key.substring(separatorIndex + 1);
-            if (cachedUrl.equals(trimmedUrl)) {
-                removed |= cache.remove(key) != null;
+            if (cachedUrl.equals(normalizedUrl) || cachedUrl.equals(trimmedUrl)) {
+                removed |= removeKey(key);
             }
         }
         return removed;
     }
+
+    // Removal runs inside compute so byte accounting cannot interleave with a put.
+    private static boolean removeKey(String key) {
+        boolean[] removed = {false};
+        cache.computeIfPresent(key, (k, variants) -> {
+            totalBytes.addAndGet(-variants.bytes);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    private static List<String> parseVary(String vary) {
+        Set<String> names = new TreeSet<>();
+        if (vary != null) {
+            for (String name : vary.split(",")) {
+                String trimmed = name.trim().toLowerCase();
+                if (trimmed.equals("*")) {
+                    return null;
+                }
+                if (!trimmed.isEmpty()) {
+                    names.add(trimmed);
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static class VariantSet {
+
+        private final List<String> varyHeaders;
+        private final ConcurrentHashMap<String, CachedResponse> responses = new ConcurrentHashMap<>();
+        private long bytes;
+        private volatile long lastAccess;
+
+        private VariantSet(List<String> varyHeaders) {
+            this.varyHeaders = varyHeaders;
+        }
+
+        private String selectorFor(List<String> requestHeaders) {
+            if (varyHeaders.isEmpty()) {
+                return "";
+            }
+            StringBuilder selector = new StringBuilder();
+            for (String name : varyHeaders) {
+                String value = HttpHeaders.find(requestHeaders, name);
+                selector.append(name).append('=');
+                if (value != null) {
+                    selector.append(value.replaceAll("\\s+", " "));
+                }
+                selector.append('\n');
+            }
+            return selector.toString();
+        }
+    }
 }
@@ -0,0 +1,140 @@
+package com.proxy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class CachedResponse {
+
+    private final byte[] raw;
+    private final int statusCode;
+    private final int bodyOffset;
+    private final List<String> headerLines;
+
+    private CachedResponse(byte[] raw, int statusCode, int bodyOffset, List<String> headerLines) {
+        this.raw = raw;
+        this.statusCode = statusCode;
+        this.bodyOffset = bodyOffset;
+        this.headerLines = headerLines;
+    }
+
+    /**
+     * Parses a raw HTTP response as read from the origin. Returns null when the
+     * status line or the end of the header block cannot be found.
+     */
+    public static CachedResponse parse(byte[] raw) {
+        if (raw == null) {
+            return null;
+        }
+
+        int headerEnd = -1;
+        for (int i = 0; i + 3 < raw.length; i++) {
+            if (raw[i] == '\r' && raw[i + 1] == '\n' && raw[i + 2] == '\r' && raw[i + 3] == '\n') {
+                headerEnd = i;
+                break;
+            }
+        }
+        if (headerEnd == -1) {
+            return null;
+        }
+
+        String headerBlock = new String(raw, 0, headerEnd, StandardCharsets.ISO_8859_1);
+        String[] lines = headerBlock.split("\r\n");
+        int statusCode = statusCodeOf(lines[0]);
+        if (statusCode == 0) {
+            return null;
+        }
+
+        List<String> headerLines = new ArrayList<>();
+        for (int i = 1; i < lines.length; i++) {
+            if (!lines[i].isEmpty()) {
+                headerLines.add(lines[i]);
+            }
+        }
+
+        return new CachedResponse(raw, statusCode, headerEnd + 4, Collections.unmodifiableList(headerLines));
+    }
+
+    /**
+     * Reads the status code from the start of a response without buffering the
+     * rest of it. Returns 0 when the bytes do not begin with a status line.
+     */
+    public static int parseStatusCode(byte[] data, int length) {
+        int lineEnd = 0;
+        while (lineEnd < length && data[lineEnd] != '\r' && data[lineEnd] != '\n') {
+            lineEnd++;
+        }
+        return statusCodeOf(new String(data, 0, lineEnd, StandardCharsets.ISO_8859_1));
+    }
+
+    private static int statusCodeOf(String statusLine) {
+        String[] statusParts = statusLine.split(" ");
+        if (statusParts.length < 2 || !statusParts[0].startsWith("HTTP/")) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(statusParts[1]);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public List<String> getHeaderLines() {
+        return headerLines;
+    }
+
+    public String getHeader(String name) {
+        return HttpHeaders.find(headerLines, name);
+    }
+
+    public int getBodyLength() {
+        return raw.length - bodyOffset;
+    }
+
+    public int getSize() {
+        return raw.length;
+    }
+
+    /**
+     * True unless the response declares a Content-Length that the stored body
+     * does not match, i.e. the origin closed the connection early.
+     */
+    public boolean isComplete() {
+        String contentLength = getHeader("Content-Length");
+        if (contentLength == null) {
+            return true;
+        }
+        try {
+            return Long.parseLong(contentLength.trim()) == getBodyLength();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A response can be sliced into byte ranges only when it is a complete 200
+     * whose stored bytes are the entity itself (not chunk-framed).
+     */
+    public boolean isRangeable() {
+        if (statusCode != 200 || !isComplete()) {
+            return false;
+        }
+        String transferEncoding = getHeader("Transfer-Encoding");
+        return transferEncoding == null || transferEncoding.equalsIgnoreCase("identity");
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(raw);
+    }
+
+    public void writeBodyRange(OutputStream out, long start, long end) throws IOException {
+        out.write(raw, bodyOffset + (int) start, (int) (end - start + 1));
+    }
+}
@@ -7,15 +7,31 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class ClientHandler implements Runnable {
 
+    private static final String[] CONDITIONAL_HEADERS = {
+            "If-None-Match", "If-Modified-Since", "If-Match", "If-Unmodified-Since"
+    };
+
     private final Socket clientSocket;
-    private static final int BUFFER_SIZE = 8192;
-    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private final int bufferSize;
+
+    // Per-request outcome, only used when traffic capture was running when the
+    // request started; requests already in flight at capture start are skipped
+    // so every record carries the headers it was served with.
+    private boolean capturing;
+    private TrafficRecord.Result capturedResult = TrafficRecord.Result.ERROR;
+    private int capturedStatus;
+    private List<String> capturedHeaders = Collections.emptyList();
+    private volatile long capturedTunnelBytes;
 
     public ClientHandler(Socket socket) {
         this.clientSocket = socket;
+        this.bufferSize = ProxyConfig.getInt(ProxyConfig.BUFFER_SIZE);
     }
 
     @Override
@@ -24,8 +40,8 @@ public class ClientHandler implements Runnable {
         + Thread.currentThread().getName());
         try (
                 BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(clientSocket.getInputStream()));
-                OutputStream clientOut = clientSocket.getOutputStream()
+                        new InputStreamReader(clientSocket.getInputStream()), bufferSize);
+                CountingOutputStream clientOut = new CountingOutputStream(clientSocket.getOutputStream())
         ) {
 
             String requestLine;
@@ -47,6 +63,8 @@ public class ClientHandler implements Runnable {
             String urlString = parts[1];
 
             long requestStartTime = System.nanoTime();
+            long requestStartEpochMs = System.currentTimeMillis();
+            capturing = TrafficRecorder.isRecording();
 
             try {
                 if ("CONNECT".equalsIgnoreCase(method)) {
@@ -58,6 +76,11 @@ public class ClientHandler implements Runnable {
                 long requestDurationMs = (System.nanoTime() - requestStartTime) / 1_000_000;
                 System.out.println("Request Completed: " + method + " " + urlString +
                         " | Time: " + requestDurationMs + " ms");
+                if (capturing) {
+                    TrafficRecorder.record(new TrafficRecord(requestStartEpochMs, (int) requestDurationMs,
+                            capturedResult, capturedStatus, clientOut.getCount() + capturedTunnelBytes,
+                            method, urlString, capturedHeaders));
+                }
             }
 
         } catch (SocketException e) {
@@ -82,29 +105,70 @@ public class ClientHandler implements Runnable {
         return;
     }
 
-    String cacheKey = method + ":" + urlString;
+    List<String> requestHeaders = readRequestHeaders(reader);
+    String rangeHeader = HttpHeaders.find(requestHeaders, "Range");
+    if (capturing) {
+        capturedHeaders = TrafficRecorder.selectHeaders(requestHeaders);
+    }
+
+    String cacheKey = CacheKey.of(method, urlString);
 
     // ================= CACHE HIT =================
-    if ("GET".equalsIgnoreCase(method) && CacheManager.contains(cacheKey)) {
+    boolean isGet = "GET".equalsIgnoreCase(method);
+    CachedResponse cachedResponse = isGet ? CacheManager.get(cacheKey, requestHeaders) : null;
+
+    // Keys owned by another instance are cached there, so ask it before the origin.
+    boolean fromPeer = false;
+    if (cachedResponse == null && isGet) {
+        String peerOwner = PeerCache.remoteOwnerOf(cacheKey, requestHeaders);
+        if (peerOwner != null) {
+            cachedResponse = PeerCache.fetch(peerOwner, cacheKey, requestHeaders);
+            fromPeer = cachedResponse != null;
+        }
+    }
+
+    if (cachedResponse != null) {
 
-        byte[] cachedResponse = CacheManager.get(cacheKey);
-        clientOut.write(cachedResponse);
+        capturedResult = fromPeer ? TrafficRecord.Result.PEER_HIT : TrafficRecord.Result.CACHE_HIT;
+        capturedStatus = cachedResponse.getStatusCode();
+
+        boolean servedRange = false;
+        if (rangeHeader != null && cachedResponse.isRangeable()
+                && ifRangeMatches(HttpHeaders.find(requestHeaders, "If-Range"), cachedResponse)) {
+            ByteRange range = ByteRange.parse(rangeHeader, cachedResponse.getBodyLength());
+            if (range != null) {
+                sendPartialContent(range, cachedResponse, clientOut);
+                servedRange = true;
+            }
+        }
+
+        if (!servedRange) {
+            cachedResponse.writeTo(clientOut);
+        }
         clientOut.flush();
 
         long endTime = System.nanoTime();
         long durationMs = (endTime - startTime) / 1_000_000;
 
-        ProxyStats.recordCacheHit(durationMs);
-        System.out.println("Cache Retrieved: " + host +
-                " | Time: " + durationMs + " ms");
+        if (fromPeer) {
+            ProxyStats.recordPeerHit(durationMs);
+        } else {
+            ProxyStats.recordCacheHit(durationMs);
+        }
+        System.out.println((fromPeer ? "Peer " : "") + (servedRange ? "Cache Range Retrieved: " : "Cache Retrieved: ")
+                + host + " | Time: " + durationMs + " ms");
 
         return;
     }
 
     // ================= NETWORK REQUEST =================
+    // Once part of the upstream response has reached the client, an error page
+    // would be spliced into that response; the only safe reaction is to close.
+    boolean forwardedToClient = false;
     try (Socket serverSocket = new Socket()) {
 
-        serverSocket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        serverSocket.connect(new InetSocketAddress(host, port), ProxyConfig.getInt(ProxyConfig.UPSTREAM_CONNECT_TIMEOUT));
+        serverSocket.setSoTimeout(ProxyConfig.getInt(ProxyConfig.UPSTREAM_READ_TIMEOUT));
 
         OutputStream serverOut = serverSocket.getOutputStream();
         InputStream serverIn = serverSocket.getInputStream();
@@ -114,8 +178,7 @@ public class ClientHandler implements Runnable {
         boolean connectionHeaderSeen = false;
         boolean proxyConnectionHeaderSeen = false;
 
-        String line;
-        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+        for (String line : requestHeaders) {
             String lowerLine = line.toLowerCase();
 
             if (lowerLine.startsWith("connection:")) {
@@ -144,19 +207,36 @@ public class ClientHandler implements Runnable {
         serverOut.write("\r\n".getBytes());
         serverOut.flush();
 
-        ByteArrayOutputStream responseBuffer = new ByteArrayOutputStream();
-        byte[] buffer = new byte[BUFFER_SIZE];
+        // Only GET responses can be cached, so nothing else is buffered; the
+        // capture status comes from the status line in the first chunk.
+        ByteArrayOutputStream responseBuffer = isGet ? new ByteArrayOutputStream() : null;
+        byte[] buffer = new byte[bufferSize];
         int bytesRead;
 
         while ((bytesRead = serverIn.read(buffer)) != -1) {
-            responseBuffer.write(buffer, 0, bytesRead);
+            if (!forwardedToClient && capturing) {
+                capturedStatus = CachedResponse.parseStatusCode(buffer, bytesRead);
+            }
+            if (responseBuffer != null) {
+                responseBuffer.write(buffer, 0, bytesRead);
+            }
             clientOut.write(buffer, 0, bytesRead);
+            forwardedToClient = true;
         }
 
         clientOut.flush();
-
-        if ("GET".equalsIgnoreCase(method)) {
-            CacheManager.put(cacheKey, responseBuffer.toByteArray());
+        capturedResult = TrafficRecord.Result.NETWORK;
+
+        if (isGet) {
+            CachedResponse fetchedResponse = CachedResponse.parse(responseBuffer.toByteArray());
+            if (isCacheableAsFullObject(fetchedResponse, requestHeaders)) {
+                String peerOwner = PeerCache.remoteOwnerOf(cacheKey, requestHeaders);
+                if (peerOwner != null) {
+                    PeerCache.offer(peerOwner, cacheKey, requestHeaders, fetchedResponse);
+                } else {
+                    CacheManager.put(cacheKey, requestHeaders, fetchedResponse);
+                }
+            }
         }
 
         long endTime = System.nanoTime();
@@ -168,10 +248,18 @@ public class ClientHandler implements Runnable {
 
     } catch (SocketTimeoutException | ConnectException e) {
         System.out.println("Upstream connection timeout for " + host + ":" + port);
-        sendGatewayTimeout(clientOut);
+        if (forwardedToClient) {
+            System.out.println("Response already started, closing client connection");
+        } else {
+            sendGatewayTimeout(clientOut);
+        }
     } catch (IOException e) {
         System.out.println("Upstream I/O error for " + host + ":" + port + " - " + e.getMessage());
-        sendBadGateway(clientOut);
+        if (forwardedToClient) {
+            System.out.println("Response already started, closing client connection");
+        } else {
+            sendBadGateway(clientOut);
+        }
     }
 }
 
@@ -203,7 +291,7 @@ public class ClientHandler implements Runnable {
 
         Socket serverSocket = new Socket();
         try {
-            serverSocket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            serverSocket.connect(new InetSocketAddress(host, port), ProxyConfig.getInt(ProxyConfig.UPSTREAM_CONNECT_TIMEOUT));
         } catch (SocketTimeoutException | ConnectException e) {
             long durationMs = (System.nanoTime() - tunnelStartTime) / 1_000_000;
             System.out.println("HTTPS tunnel timeout for " + host + ":" + port);
@@ -230,13 +318,15 @@ public class ClientHandler implements Runnable {
 
         clientOut.write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes());
         clientOut.flush();
+        capturedResult = TrafficRecord.Result.TUNNEL;
+        capturedStatus = 200;
 
     long establishedDurationMs = (System.nanoTime() - tunnelStartTime) / 1_000_000;
     System.out.println("HTTPS Tunnel Established: " + host + ":" + port +
         " | Time: " + establishedDurationMs + " ms");
 
         Thread t1 = new Thread(() -> pipe(clientSocket, serverSocket));
-        Thread t2 = new Thread(() -> pipe(serverSocket, clientSocket));
+        Thread t2 = new Thread(() -> capturedTunnelBytes = pipe(serverSocket, clientSocket));
 
         t1.start();
         t2.start();
@@ -254,33 +344,109 @@ public class ClientHandler implements Runnable {
         }
     }
 
+    private List<String> readRequestHeaders(BufferedReader reader) throws IOException {
+        List<String> headers = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            headers.add(line);
+        }
+        return headers;
+    }
+
+    // Only a complete 200 can be replayed for any later GET of the key. Answers
+    // to conditional requests (304, or a 200 that depended on a validator),
+    // bodies cut short of their Content-Length and partial or error responses
+    // must never be stored under the full-object key.
+    static boolean isCacheableAsFullObject(CachedResponse response, List<String> requestHeaders) {
+        if (response == null || response.getStatusCode() != 200 || !response.isComplete()) {
+            return false;
+        }
+        for (String conditional : CONDITIONAL_HEADERS) {
+            if (HttpHeaders.find(requestHeaders, conditional) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean ifRangeMatches(String ifRange, CachedResponse response) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            String etag = response.getHeader("ETag");
+            return etag != null && !etag.startsWith("W/") && etag.equals(ifRange);
+        }
+        String lastModified = response.getHeader("Last-Modified");
+        return lastModified != null && lastModified.equals(ifRange);
+    }
+
     private boolean checkBlockedList(String host, String urlString, OutputStream clientOut) throws IOException {
         String target = (urlString != null && !urlString.isBlank()) ? urlString : host;
         if (BlockedListManager.isBlocked(target)) {
             System.out.println("Blocked: " + target);
             ProxyStats.recordBlockedRequest();
+            capturedResult = TrafficRecord.Result.BLOCKED;
             sendForbidden(clientOut);
             return true;
         }
         return false;
     }
 
-    private void pipe(Socket inputSocket, Socket outputSocket) {
+    private long pipe(Socket inputSocket, Socket outputSocket) {
+        long total = 0;
         try {
             InputStream in = inputSocket.getInputStream();
             OutputStream out = outputSocket.getOutputStream();
-            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] buffer = new byte[bufferSize];
             int bytesRead;
 
             while ((bytesRead = in.read(buffer)) != -1) {
                 out.write(buffer, 0, bytesRead);
                 out.flush();
+                total += bytesRead;
             }
         } catch (IOException ignored) {
         }
+        return total;
+    }
+
+    private void sendPartialContent(ByteRange range, CachedResponse response, OutputStream out) throws IOException {
+        long entityLength = response.getBodyLength();
+
+        if (!range.isSatisfiable()) {
+            capturedStatus = 416;
+            String header = "HTTP/1.1 416 Range Not Satisfiable\r\n"
+                    + "Content-Range: bytes */" + entityLength + "\r\n"
+                    + "Content-Length: 0\r\n"
+                    + "Connection: close\r\n"
+                    + "\r\n";
+            out.write(header.getBytes());
+            return;
+        }
+
+        capturedStatus = 206;
+        StringBuilder header = new StringBuilder("HTTP/1.1 206 Partial Content\r\n");
+        for (String line : response.getHeaderLines()) {
+            String lowerLine = line.toLowerCase();
+            if (lowerLine.startsWith("content-length:") || lowerLine.startsWith("content-range:")
+                    || lowerLine.startsWith("transfer-encoding:") || lowerLine.startsWith("connection:")) {
+                continue;
+            }
+            header.append(line).append("\r\n");
+        }
+        header.append("Content-Range: bytes ").append(range.getStart()).append('-').append(range.getEnd())
+                .append('/').append(entityLength).append("\r\n");
+        header.append("Content-Length: ").append(range.getLength()).append("\r\n");
+        header.append("Connection: close\r\n");
+        header.append("\r\n");
+
+        out.write(header.toString().getBytes());
+        response.writeBodyRange(out, range.getStart(), range.getEnd());
     }
 
     private void sendForbidden(OutputStream out) throws IOException {
+        capturedStatus = 403;
         String body = "Blocked by Proxy";
         byte[] bodyBytes = body.getBytes();
         String response = "HTTP/1.1 403 Forbidden\r\n"
@@ -294,6 +460,7 @@ public class ClientHandler implements Runnable {
     }
 
     private void sendBadRequest(OutputStream out) throws IOException {
+        capturedStatus = 400;
         String body = "Invalid proxy request";
         byte[] bodyBytes = body.getBytes();
         String response = "HTTP/1.1 400 Bad Request\r\n"
@@ -307,6 +474,7 @@ public class ClientHandler implements Runnable {
     }
 
     private void sendGatewayTimeout(OutputStream out) throws IOException {
+        capturedStatus = 504;
         String body = "Upstream connection timed out";
         byte[] bodyBytes = body.getBytes();
         String response = "HTTP/1.1 504 Gateway Timeout\r\n"
@@ -320,6 +488,7 @@ public class ClientHandler implements Runnable {
     }
 
     private void sendBadGateway(OutputStream out) throws IOException {
+        capturedStatus = 502;
         String body = "Upstream connection failed";
         byte[] bodyBytes = body.getBytes();
         String response = "HTTP/1.1 502 Bad Gateway\r\n"
@@ -331,4 +500,29 @@ public class ClientHandler implements Runnable {
         out.write(bodyBytes);
         out.flush();
     }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
 }
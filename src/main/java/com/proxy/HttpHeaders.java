@@ -0,0 +1,22 @@
+package com.proxy;
+
+import java.util.List;
+
+public class HttpHeaders {
+
+    /**
+     * Looks up a header by case-insensitive name in raw "Name: value" lines.
+     * Repeated headers are combined into one comma-separated value.
+     */
+    public static String find(List<String> headerLines, String name) {
+        String prefix = name.toLowerCase() + ":";
+        String value = null;
+        for (String line : headerLines) {
+            if (line.toLowerCase().startsWith(prefix)) {
+                String lineValue = line.substring(prefix.length()).trim();
+                value = value == null ? lineValue : value + ", " + lineValue;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,351 @@
+package com.proxy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cooperative caching between proxy instances. Cache keys are spread over a
+ * consistent-hash ring of "host:port" members; each key is cached only by its
+ * owner. On a local miss for a key owned elsewhere the owner is asked first,
+ * and objects fetched from the origin are handed to their owner.
+ *
+ * The protocol is unauthenticated: the peer port is bound to the address in
+ * the instance's own peer id and must only be reachable on a trusted network.
+ * Stores are additionally accepted only from addresses of ring members.
+ */
+public class PeerCache {
+
+    private static final long PEER_RETRY_AFTER_MS = 10_000;
+    private static final int MAX_PEER_RESPONSE_BYTES = 64 * 1024 * 1024;
+    private static final int PEER_THREAD_POOL_SIZE = 8;
+    private static final int MAX_UTF_BYTES = 65535;
+
+    private static final byte OP_GET = 'G';
+    private static final byte OP_PUT = 'P';
+    private static final byte RESULT_MISS = 0;
+    private static final byte RESULT_HIT = 1;
+
+    private static final PeerRing ring = new PeerRing();
+    private static final ConcurrentHashMap<String, Long> downUntil = new ConcurrentHashMap<>();
+    // Inbound requests and outbound offers use separate pools so a backlog of
+    // offers can never cause this instance to turn away its peers' lookups.
+    private static final ExecutorService inboundExecutor = newPeerExecutor("proxy-peer-in");
+    private static final ExecutorService offerExecutor = newPeerExecutor("proxy-peer-offer");
+
+    private static volatile String self;
+    private static volatile ServerSocket peerServerSocket;
+
+    public static synchronized void start(String selfId) throws IOException {
+        int port = parsePort(selfId);
+        if (port == -1) {
+            throw new IllegalArgumentException("Peer id must be host:port - " + selfId);
+        }
+
+        String host = selfId.substring(0, selfId.lastIndexOf(':'));
+        ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getByName(host));
+        peerServerSocket = serverSocket;
+        self = selfId;
+        ring.add(selfId);
+
+        Thread acceptThread = new Thread(() -> acceptLoop(serverSocket), "proxy-peer-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+
+        System.out.println("Peer cache listening on " + serverSocket.getInetAddress().getHostAddress()
+                + ":" + port + " as " + selfId);
+    }
+
+    public static void stop() {
+        ServerSocket serverSocket = peerServerSocket;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public static boolean isEnabled() {
+        return self != null;
+    }
+
+    public static boolean addPeer(String peerId) {
+        return parsePort(peerId) != -1 && ring.add(peerId);
+    }
+
+    public static boolean removePeer(String peerId) {
+        if (peerId.equals(self)) {
+            return false;
+        }
+        downUntil.remove(peerId);
+        return ring.remove(peerId);
+    }
+
+    public static Set<String> members() {
+        return ring.members();
+    }
+
+    public static boolean isPeerDown(String peerId) {
+        Long until = downUntil.get(peerId);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the remote owner of the key, or null when this instance owns it,
+     * peering is off, the owner recently failed and is being skipped, or the
+     * request is too large for the peer protocol and must be handled locally.
+     */
+    public static String remoteOwnerOf(String key, List<String> requestHeaders) {
+        if (self == null || !fitsProtocol(key, requestHeaders)) {
+            return null;
+        }
+        String owner = ring.ownerOf(key);
+        if (owner == null || owner.equals(self) || isPeerDown(owner)) {
+            return null;
+        }
+        return owner;
+    }
+
+    public static CachedResponse fetch(String owner, String key, List<String> requestHeaders) {
+        try (Socket socket = connect(owner)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeByte(OP_GET);
+            writeRequest(out, key, requestHeaders);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readByte() != RESULT_HIT) {
+                ProxyStats.recordPeerMiss();
+                return null;
+            }
+            CachedResponse response = CachedResponse.parse(readBody(in));
+            if (response == null) {
+                ProxyStats.recordPeerMiss();
+            }
+            return response;
+        } catch (IOException e) {
+            markDown(owner, e);
+            return null;
+        }
+    }
+
+    /**
+     * Hands a freshly fetched response to its owner in the background. Offers
+     * are dropped rather than queued without bound when peers fall behind.
+     */
+    public static void offer(String owner, String key, List<String> requestHeaders, CachedResponse response) {
+        if (!fitsPeerBody(response)) {
+            return;
+        }
+        try {
+            offerExecutor.execute(() -> {
+                try (Socket socket = connect(owner)) {
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    out.writeByte(OP_PUT);
+                    writeRequest(out, key, requestHeaders);
+                    out.writeInt(response.getSize());
+                    response.writeTo(out);
+                    out.flush();
+                } catch (IOException e) {
+                    markDown(owner, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            System.out.println("Peer offer dropped for " + owner + ": queue full");
+        }
+    }
+
+    private static void acceptLoop(ServerSocket serverSocket) {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                try {
+                    inboundExecutor.execute(() -> handlePeer(socket));
+                } catch (RejectedExecutionException e) {
+                    socket.close();
+                }
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    break;
+                }
+                System.out.println("Peer accept error: " + e.getMessage());
+            } catch (IOException e) {
+                System.out.println("Peer accept error: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void handlePeer(Socket socket) {
+        try (socket) {
+            socket.setSoTimeout(ProxyConfig.getInt(ProxyConfig.PEER_SERVE_TIMEOUT));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte op = in.readByte();
+            String key = in.readUTF();
+            List<String> requestHeaders = readHeaders(in);
+
+            if (op == OP_GET) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                CachedResponse response = CacheManager.get(key, requestHeaders);
+                if (response == null || !fitsPeerBody(response)) {
+                    out.writeByte(RESULT_MISS);
+                } else {
+                    out.writeByte(RESULT_HIT);
+                    out.writeInt(response.getSize());
+                    response.writeTo(out);
+                }
+                out.flush();
+            } else if (op == OP_PUT) {
+                if (!isRingMemberAddress(socket.getInetAddress())) {
+                    System.out.println("Rejected peer store from non-member " + socket.getInetAddress().getHostAddress());
+                    return;
+                }
+                CachedResponse response = CachedResponse.parse(readBody(in));
+                if (response != null) {
+                    CacheManager.put(key, requestHeaders, response);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Peer request failed: " + e.getMessage());
+        }
+    }
+
+    private static boolean isRingMemberAddress(InetAddress address) {
+        for (String member : ring.members()) {
+            if (member.equals(self)) {
+                continue;
+            }
+            try {
+                InetAddress[] memberAddresses = InetAddress.getAllByName(member.substring(0, member.lastIndexOf(':')));
+                if (Arrays.asList(memberAddresses).contains(address)) {
+                    return true;
+                }
+            } catch (IOException ignored) {
+            }
+        }
+        return false;
+    }
+
+    // writeUTF rejects strings over 64 KB of modified UTF-8; such requests skip
+    // peering rather than failing mid-write and being blamed on the peer.
+    private static boolean fitsProtocol(String key, List<String> requestHeaders) {
+        if (utfLength(key) > MAX_UTF_BYTES || requestHeaders.size() > 1000) {
+            return false;
+        }
+        for (String header : requestHeaders) {
+            if (utfLength(header) > MAX_UTF_BYTES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The requester refuses bodies over the limit, so larger objects are
+    // reported as misses and never offered instead of failing the transfer.
+    private static boolean fitsPeerBody(CachedResponse response) {
+        return response.getSize() <= MAX_PEER_RESPONSE_BYTES;
+    }
+
+    private static long utfLength(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += (c >= 0x0001 && c <= 0x007F) ? 1 : (c <= 0x07FF ? 2 : 3);
+        }
+        return length;
+    }
+
+    private static ExecutorService newPeerExecutor(String threadName) {
+        return new ThreadPoolExecutor(PEER_THREAD_POOL_SIZE, PEER_THREAD_POOL_SIZE, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(256), runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private static Socket connect(String peerId) throws IOException {
+        int separatorIndex = peerId.lastIndexOf(':');
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(peerId.substring(0, separatorIndex), parsePort(peerId)),
+                    ProxyConfig.getInt(ProxyConfig.PEER_CONNECT_TIMEOUT));
+            socket.setSoTimeout(ProxyConfig.getInt(ProxyConfig.PEER_READ_TIMEOUT));
+            socket.setTcpNoDelay(true);
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private static void markDown(String peerId, IOException cause) {
+        ProxyStats.recordPeerError();
+        long now = System.currentTimeMillis();
+        Long previous = downUntil.put(peerId, now + PEER_RETRY_AFTER_MS);
+        if (previous == null || previous <= now) {
+            System.out.println("Peer unavailable, skipping for " + PEER_RETRY_AFTER_MS + " ms: "
+                    + peerId + " - " + cause.getMessage());
+        }
+    }
+
+    private static void writeRequest(DataOutputStream out, String key, List<String> requestHeaders) throws IOException {
+        out.writeUTF(key);
+        out.writeInt(requestHeaders.size());
+        for (String header : requestHeaders) {
+            out.writeUTF(header);
+        }
+    }
+
+    private static List<String> readHeaders(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > 1000) {
+            throw new IOException("Invalid peer header count: " + count);
+        }
+        List<String> headers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            headers.add(in.readUTF());
+        }
+        return headers;
+    }
+
+    private static byte[] readBody(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_PEER_RESPONSE_BYTES) {
+            throw new IOException("Invalid peer response length: " + length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return body;
+    }
+
+    private static int parsePort(String peerId) {
+        int separatorIndex = peerId == null ? -1 : peerId.lastIndexOf(':');
+        if (separatorIndex <= 0 || separatorIndex == peerId.length() - 1) {
+            return -1;
+        }
+        try {
+            int port = Integer.parseInt(peerId.substring(separatorIndex + 1));
+            return port > 0 && port <= 65535 ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.proxy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class PeerRing {
+
+    private static final int VIRTUAL_NODES_PER_PEER = 128;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> members = new TreeSet<>();
+
+    /**
+     * Adds a member ("host:port"). Every instance must list members with the
+     * same spelling, otherwise their rings disagree about key ownership.
+     */
+    public synchronized boolean add(String member) {
+        if (!members.add(member)) {
+            return false;
+        }
+        for (int i = 0; i < VIRTUAL_NODES_PER_PEER; i++) {
+            ring.put(hash(member + "#" + i), member);
+        }
+        return true;
+    }
+
+    public synchronized boolean remove(String member) {
+        if (!members.remove(member)) {
+            return false;
+        }
+        ring.values().removeIf(member::equals);
+        return true;
+    }
+
+    public synchronized String ownerOf(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public synchronized Set<String> members() {
+        return Collections.unmodifiableSet(new TreeSet<>(members));
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.proxy;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * Runtime settings. Values start from built-in defaults, are overridden by a
+ * properties file and then by command-line arguments, and most can be changed
+ * live from the console; listeners apply a change to running components.
+ */
+public class ProxyConfig {
+
+    public static final String PROXY_PORT = "proxy.port";
+    public static final String POOL_SIZE = "pool.size";
+    public static final String BUFFER_SIZE = "buffer.size";
+    public static final String CACHE_MAX_BYTES = "cache.maxBytes";
+    public static final String UPSTREAM_CONNECT_TIMEOUT = "upstream.connectTimeout";
+    public static final String UPSTREAM_READ_TIMEOUT = "upstream.readTimeout";
+    public static final String PEER_CONNECT_TIMEOUT = "peer.connectTimeout";
+    public static final String PEER_READ_TIMEOUT = "peer.readTimeout";
+    public static final String PEER_SERVE_TIMEOUT = "peer.serveTimeout";
+
+    public static final String DEFAULT_CONFIG_FILE = "proxy.properties";
+
+    private static final Map<String, Setting> settings = new LinkedHashMap<>();
+    private static final Map<String, String> commandLineOverrides = new LinkedHashMap<>();
+    private static volatile String configFile;
+    private static volatile boolean started;
+
+    static {
+        define(PROXY_PORT, 8080, 1, 65535, false, "Port the proxy listens on");
+        define(POOL_SIZE, 50, 1, 10_000, true, "Client handler threads");
+        define(BUFFER_SIZE, 8192, 512, 16 * 1024 * 1024, true, "I/O buffer bytes for new connections");
+        define(CACHE_MAX_BYTES, 256L * 1024 * 1024, 0, Long.MAX_VALUE, true, "Cache budget in bytes, 0 = unlimited");
+        define(UPSTREAM_CONNECT_TIMEOUT, 10000, 1, 600_000, true, "Origin connect timeout ms");
+        define(UPSTREAM_READ_TIMEOUT, 0, 0, 3_600_000, true, "Origin read timeout ms, 0 = none");
+        define(PEER_CONNECT_TIMEOUT, 5, 1, 60_000, true, "Cache peer connect timeout ms");
+        define(PEER_READ_TIMEOUT, 50, 1, 60_000, true, "Cache peer read timeout ms");
+        define(PEER_SERVE_TIMEOUT, 1000, 1, 600_000, true, "Read timeout ms for requests and stores from peers");
+    }
+
+    public static long getLong(String key) {
+        return setting(key).value;
+    }
+
+    public static int getInt(String key) {
+        return (int) Math.min(Integer.MAX_VALUE, setting(key).value);
+    }
+
+    /**
+     * Marks startup as complete. From then on, changes to startup-only settings
+     * are kept as pending values and never replace the value in effect.
+     */
+    public static void markStarted() {
+        started = true;
+    }
+
+    /**
+     * Validates and applies a value, then notifies listeners. Returns false
+     * when the setting is startup-only and the value is pending a restart.
+     */
+    public static synchronized boolean set(String key, String value) {
+        Setting setting = setting(key);
+        long parsed = parseValue(value);
+        if (parsed < setting.min || parsed > setting.max) {
+            throw new IllegalArgumentException(key + " must be between " + setting.min + " and " + setting.max);
+        }
+        if (started && !setting.live) {
+            setting.pendingValue = parsed == setting.value ? null : parsed;
+            return false;
+        }
+        if (parsed == setting.value) {
+            return true;
+        }
+        setting.value = parsed;
+        for (LongConsumer listener : setting.listeners) {
+            listener.accept(parsed);
+        }
+        return true;
+    }
+
+    public static Long getPending(String key) {
+        return setting(key).pendingValue;
+    }
+
+    public static void onChange(String key, LongConsumer listener) {
+        setting(key).listeners.add(listener);
+    }
+
+    public static synchronized void overrideFromCommandLine(String key, String value) {
+        set(key, value);
+        commandLineOverrides.put(key, value);
+    }
+
+    /**
+     * Loads settings from a properties file. Every setting is rebuilt from its
+     * default, then the file, then command-line overrides, so keys removed from
+     * the file fall back to their defaults on reload. Each setting is applied
+     * once with its final value, so listeners only see real changes. Bad
+     * entries are reported and skipped.
+     */
+    public static synchronized void load(String path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(path)) {
+            properties.load(in);
+        }
+        configFile = path;
+
+        Map<String, Long> targets = new LinkedHashMap<>();
+        settings.forEach((key, setting) -> targets.put(key, setting.defaultValue));
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key);
+            try {
+                Setting setting = setting(key);
+                long parsed = parseValue(value);
+                if (parsed < setting.min || parsed > setting.max) {
+                    throw new IllegalArgumentException(key + " must be between " + setting.min + " and " + setting.max);
+                }
+                targets.put(key, parsed);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Ignoring config entry " + key + " in " + path + ": " + e.getMessage());
+            }
+        }
+        commandLineOverrides.forEach((key, value) -> targets.put(key, parseValue(value)));
+
+        targets.forEach((key, value) -> set(key, Long.toString(value)));
+    }
+
+    public static String getConfigFile() {
+        return configFile;
+    }
+
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Setting setting : settings.values()) {
+            String line = setting.key + " = " + setting.value;
+            if (setting.value != setting.defaultValue) {
+                line += " (default " + setting.defaultValue + ")";
+            }
+            line += " - " + setting.description;
+            if (setting.pendingValue != null) {
+                line += " [pending " + setting.pendingValue + " after restart]";
+            } else if (!setting.live) {
+                line += " [restart required]";
+            }
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static void define(String key, long defaultValue, long min, long max, boolean live, String description) {
+        settings.put(key, new Setting(key, defaultValue, min, max, live, description));
+    }
+
+    private static Setting setting(String key) {
+        Setting setting = settings.get(key);
+        if (setting == null) {
+            throw new IllegalArgumentException("Unknown setting: " + key);
+        }
+        return setting;
+    }
+
+    // Accepts plain numbers and k/m/g suffixes (powers of 1024), e.g. "512m".
+    static long parseValue(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing value");
+        }
+        String trimmed = value.trim().toLowerCase();
+        long multiplier = 1;
+        char suffix = trimmed.charAt(trimmed.length() - 1);
+        if (suffix == 'k' || suffix == 'm' || suffix == 'g') {
+            multiplier = suffix == 'k' ? 1024L : suffix == 'm' ? 1024L * 1024 : 1024L * 1024 * 1024;
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        try {
+            return Math.multiplyExact(Long.parseLong(trimmed), multiplier);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    private static class Setting {
+
+        private final String key;
+        private final long defaultValue;
+        private final long min;
+        private final long max;
+        private final boolean live;
+        private final String description;
+        private final List<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+        private volatile long value;
+        private volatile Long pendingValue;
+
+        private Setting(String key, long defaultValue, long min, long max, boolean live, String description) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.min = min;
+            this.max = max;
+            this.live = live;
+            this.description = description;
+            this.value = defaultValue;
+        }
+    }
+}
@@ -6,22 +6,127 @@ import java.io.InputStreamReader;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class ProxyServer {
 
-    private static final int PORT = 8080;
-    private static final int THREAD_POOL_SIZE = 50;
-
     public static void main(String[] args) throws Exception {
 
-        ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-        ServerSocket serverSocket = new ServerSocket(PORT);
+        String configFile = null;
+        Map<String, String> overrides = new LinkedHashMap<>();
+        String peerSelf = null;
+        String peers = null;
+        String captureFile = null;
+        String warmFile = null;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--config":
+                    configFile = value;
+                    i++;
+                    break;
+                case "--set":
+                    int equalsIndex = value == null ? -1 : value.indexOf('=');
+                    if (equalsIndex <= 0) {
+                        System.out.println("Expected --set <key>=<value>, got: " + value);
+                        return;
+                    }
+                    overrides.put(value.substring(0, equalsIndex).trim(), value.substring(equalsIndex + 1).trim());
+                    i++;
+                    break;
+                case "--port":
+                    overrides.put(ProxyConfig.PROXY_PORT, value);
+                    i++;
+                    break;
+                case "--peer-self":
+                    peerSelf = value;
+                    i++;
+                    break;
+                case "--peers":
+                    peers = value;
+                    i++;
+                    break;
+                case "--capture":
+                    captureFile = value;
+                    i++;
+                    break;
+                case "--warm":
+                    warmFile = value;
+                    i++;
+                    break;
+                default:
+                    System.out.println("Usage: ProxyServer [--config <file>] [--set <key>=<value>]... [--port <port>]"
+                            + " [--peer-self <host:port> --peers <host:port,...>] [--capture <file>] [--warm <file>]");
+                    return;
+            }
+        }
+
+        if (configFile == null && Files.exists(Paths.get(ProxyConfig.DEFAULT_CONFIG_FILE))) {
+            configFile = ProxyConfig.DEFAULT_CONFIG_FILE;
+        }
+        try {
+            if (configFile != null) {
+                ProxyConfig.load(configFile);
+                System.out.println("Loaded configuration from " + configFile);
+            }
+            for (Map.Entry<String, String> override : overrides.entrySet()) {
+                ProxyConfig.overrideFromCommandLine(override.getKey(), override.getValue());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Invalid configuration: " + e.getMessage());
+            return;
+        }
+
+        int port = ProxyConfig.getInt(ProxyConfig.PROXY_PORT);
+        int poolSize = ProxyConfig.getInt(ProxyConfig.POOL_SIZE);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        ServerSocket serverSocket = new ServerSocket(port);
+        ProxyConfig.markStarted();
+
+        ProxyConfig.onChange(ProxyConfig.POOL_SIZE, size -> resizePool(executor, (int) size));
+        ProxyConfig.onChange(ProxyConfig.CACHE_MAX_BYTES, maxBytes -> {
+            int evicted = CacheManager.evictToBudget();
+            if (evicted > 0) {
+                System.out.println("Evicted " + evicted + " cache entries to fit new budget.");
+            }
+        });
+
+        if (peerSelf != null) {
+            PeerCache.start(peerSelf);
+            if (peers != null) {
+                for (String peer : peers.split(",")) {
+                    if (!peer.isBlank()) {
+                        PeerCache.addPeer(peer.trim());
+                    }
+                }
+            }
+        }
+
+        if (warmFile != null) {
+            try {
+                TrafficReplayer.warm(warmFile, 0, executor);
+            } catch (IOException e) {
+                System.out.println("Cache warm-up failed: " + e.getMessage());
+            }
+        }
+
+        if (captureFile != null) {
+            TrafficRecorder.start(captureFile);
+            System.out.println("Capturing traffic to " + captureFile);
+        }
+
         startCommandListener(serverSocket, executor);
 
-        System.out.println("Proxy Server running on port " + PORT);
+        System.out.println("Proxy Server running on port " + port);
         System.out.println("Type 'help' for CLI commands.");
 
         while (!serverSocket.isClosed()) {
@@ -37,6 +142,8 @@ public class ProxyServer {
         }
 
         executor.shutdownNow();
+        PeerCache.stop();
+        TrafficRecorder.stop();
     }
 
     private static void startCommandListener(ServerSocket serverSocket, ExecutorService executor) {
@@ -107,6 +214,51 @@ public class ProxyServer {
                 handleCacheCommand(tokens);
                 break;
 
+            case "peer":
+                handlePeerCommand(tokens);
+                break;
+
+            case "capture":
+                handleCaptureCommand(tokens);
+                break;
+
+            case "warm":
+                if (tokens.length < 2) {
+                    System.out.println("Usage: warm <capture-file> [max-objects]");
+                    return;
+                }
+                try {
+                    int limit = tokens.length > 2 ? Integer.parseInt(tokens[2]) : 0;
+                    TrafficReplayer.warm(tokens[1], limit, executor);
+                } catch (NumberFormatException e) {
+                    System.out.println("Usage: warm <capture-file> [max-objects]");
+                } catch (IOException e) {
+                    System.out.println("Cache warm-up failed: " + e.getMessage());
+                }
+                break;
+
+            case "set":
+                if (tokens.length < 3) {
+                    System.out.println("Usage: set <key> <value>");
+                    return;
+                }
+                try {
+                    if (ProxyConfig.set(tokens[1], tokens[2])) {
+                        System.out.println("Set " + tokens[1] + " = " + ProxyConfig.getLong(tokens[1]));
+                    } else {
+                        Long pending = ProxyConfig.getPending(tokens[1]);
+                        System.out.println(tokens[1] + " stays " + ProxyConfig.getLong(tokens[1])
+                                + (pending == null ? "" : " until restart; pending value " + pending));
+                    }
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Could not set " + tokens[1] + ": " + e.getMessage());
+                }
+                break;
+
+            case "config":
+                handleConfigCommand(tokens);
+                break;
+
             case "stats":
                 System.out.println(ProxyStats.buildReport());
                 break;
@@ -128,6 +280,7 @@ public class ProxyServer {
                     System.out.println("Error closing server socket: " + e.getMessage());
                 }
                 executor.shutdownNow();
+                TrafficRecorder.stop();
                 break;
 
             default:
@@ -144,6 +297,20 @@ public class ProxyServer {
         System.out.println("  cache list      - Show cached request keys");
         System.out.println("  cache clear     - Remove all cached responses");
         System.out.println("  cache remove <url> - Remove cached responses for a URL");
+        System.out.println("  cache ignore-param <host> <param>   - Leave a query parameter out of cache keys for a host");
+        System.out.println("  cache unignore-param <host> <param> - Stop ignoring a query parameter for a host");
+        System.out.println("  cache sort-params <host> <on|off>   - Sort query parameters in cache keys for a host");
+        System.out.println("  cache rules     - Show per-host cache key rules");
+        System.out.println("  peer list       - Show cache peers on the hash ring");
+        System.out.println("  peer add <host:port>    - Add a cache peer to the hash ring");
+        System.out.println("  peer remove <host:port> - Remove a cache peer from the hash ring");
+        System.out.println("  capture start <file>    - Record requests to a binary capture file");
+        System.out.println("  capture stop    - Stop recording requests");
+        System.out.println("  capture status  - Show capture progress");
+        System.out.println("  warm <file> [max-objects] - Pre-load the cache with the hot set of a capture");
+        System.out.println("  set <key> <value> - Change a setting live (e.g. set pool.size 100, set cache.maxBytes 512m)");
+        System.out.println("  config show     - Show current settings");
+        System.out.println("  config reload   - Re-read the configuration file and apply it");
         System.out.println("  stats           - Show cache/network timing efficiency stats");
         System.out.println("  clear           - Clear console text");
         System.out.println("  help            - Show this message");
@@ -160,7 +327,7 @@ public class ProxyServer {
 
     private static void handleCacheCommand(String[] tokens) {
         if (tokens.length < 2) {
-            System.out.println("Usage: cache <list|clear|remove>");
+            System.out.println("Usage: cache <list|clear|remove|ignore-param|unignore-param|sort-params|rules>");
             return;
         }
 
@@ -171,7 +338,7 @@ public class ProxyServer {
                 if (cacheKeys.isEmpty()) {
                     System.out.println("Cache is empty.");
                 } else {
-                    System.out.println("Cache entries (" + cacheKeys.size() + "):");
+                    System.out.println("Cache entries (" + cacheKeys.size() + ", " + CacheManager.totalBytes() + " bytes):");
                     cacheKeys.forEach(key -> System.out.println("- " + key));
                 }
                 break;
@@ -195,9 +362,186 @@ public class ProxyServer {
                 }
                 break;
 
+            case "ignore-param":
+                if (tokens.length < 4) {
+                    System.out.println("Usage: cache ignore-param <host> <param>");
+                    return;
+                }
+                if (CacheKey.ignoreQueryParam(tokens[2], tokens[3])) {
+                    System.out.println("Ignoring query parameter '" + tokens[3] + "' for host: " + tokens[2]);
+                } else {
+                    System.out.println("Query parameter is already ignored for host: " + tokens[2]);
+                }
+                break;
+
+            case "unignore-param":
+                if (tokens.length < 4) {
+                    System.out.println("Usage: cache unignore-param <host> <param>");
+                    return;
+                }
+                if (CacheKey.unignoreQueryParam(tokens[2], tokens[3])) {
+                    System.out.println("No longer ignoring query parameter '" + tokens[3] + "' for host: " + tokens[2]);
+                } else {
+                    System.out.println("Query parameter was not ignored for host: " + tokens[2]);
+                }
+                break;
+
+            case "sort-params":
+                if (tokens.length < 4 || !(tokens[3].equalsIgnoreCase("on") || tokens[3].equalsIgnoreCase("off"))) {
+                    System.out.println("Usage: cache sort-params <host> <on|off>");
+                    return;
+                }
+                boolean sort = tokens[3].equalsIgnoreCase("on");
+                CacheKey.setSortQuery(tokens[2], sort);
+                System.out.println("Query parameter sorting " + (sort ? "enabled" : "disabled") + " for host: " + tokens[2]);
+                break;
+
+            case "rules":
+                Map<String, String> rules = CacheKey.describeRules();
+                if (rules.isEmpty()) {
+                    System.out.println("No per-host cache key rules.");
+                } else {
+                    System.out.println("Cache key rules:");
+                    rules.forEach((host, rule) -> System.out.println("- " + host + ": " + rule));
+                }
+                break;
+
             default:
                 System.out.println("Unknown cache command: " + subcommand);
-                System.out.println("Usage: cache <list|clear|remove>");
+                System.out.println("Usage: cache <list|clear|remove|ignore-param|unignore-param|sort-params|rules>");
+        }
+    }
+
+    private static void handlePeerCommand(String[] tokens) {
+        if (!PeerCache.isEnabled()) {
+            System.out.println("Peer caching is disabled. Start with --peer-self <host:port> to enable it.");
+            return;
+        }
+        if (tokens.length < 2) {
+            System.out.println("Usage: peer <list|add|remove>");
+            return;
+        }
+
+        String subcommand = tokens[1].toLowerCase();
+        switch (subcommand) {
+            case "list":
+                System.out.println("Cache peers:");
+                PeerCache.members().forEach(peer -> System.out.println("- " + peer
+                        + (PeerCache.isPeerDown(peer) ? " (down)" : "")));
+                break;
+
+            case "add":
+                if (tokens.length < 3) {
+                    System.out.println("Usage: peer add <host:port>");
+                    return;
+                }
+                if (PeerCache.addPeer(tokens[2])) {
+                    System.out.println("Added peer: " + tokens[2]);
+                } else {
+                    System.out.println("Peer is already present or invalid: " + tokens[2]);
+                }
+                break;
+
+            case "remove":
+                if (tokens.length < 3) {
+                    System.out.println("Usage: peer remove <host:port>");
+                    return;
+                }
+                if (PeerCache.removePeer(tokens[2])) {
+                    System.out.println("Removed peer: " + tokens[2]);
+                } else {
+                    System.out.println("Peer is not present or is this instance: " + tokens[2]);
+                }
+                break;
+
+            default:
+                System.out.println("Unknown peer command: " + subcommand);
+                System.out.println("Usage: peer <list|add|remove>");
+        }
+    }
+
+    private static void handleConfigCommand(String[] tokens) {
+        String subcommand = tokens.length < 2 ? "show" : tokens[1].toLowerCase();
+        switch (subcommand) {
+            case "show":
+                String file = ProxyConfig.getConfigFile();
+                System.out.println("Configuration" + (file == null ? " (defaults)" : " (" + file + ")") + ":");
+                ProxyConfig.describe().forEach(line -> System.out.println("- " + line));
+                System.out.println("Cache usage: " + CacheManager.totalBytes() + " bytes in "
+                        + CacheManager.size() + " responses");
+                break;
+
+            case "reload":
+                String configFile = ProxyConfig.getConfigFile();
+                if (configFile == null) {
+                    System.out.println("No configuration file loaded. Start with --config <file>.");
+                    return;
+                }
+                try {
+                    ProxyConfig.load(configFile);
+                    System.out.println("Reloaded configuration from " + configFile);
+                } catch (IOException e) {
+                    System.out.println("Could not reload configuration: " + e.getMessage());
+                }
+                break;
+
+            default:
+                System.out.println("Unknown config command: " + subcommand);
+                System.out.println("Usage: config <show|reload>");
+        }
+    }
+
+    // Grow the maximum first and shrink the core first so core <= max always holds;
+    // surplus threads exit once they finish their current request.
+    private static void resizePool(ThreadPoolExecutor executor, int size) {
+        if (size > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(size);
+            executor.setCorePoolSize(size);
+        } else {
+            executor.setCorePoolSize(size);
+            executor.setMaximumPoolSize(size);
+        }
+        System.out.println("Thread pool resized to " + size + " threads.");
+    }
+
+    private static void handleCaptureCommand(String[] tokens) {
+        if (tokens.length < 2) {
+            System.out.println("Usage: capture <start|stop|status>");
+            return;
+        }
+
+        String subcommand = tokens[1].toLowerCase();
+        switch (subcommand) {
+            case "start":
+                if (tokens.length < 3) {
+                    System.out.println("Usage: capture start <file>");
+                    return;
+                }
+                String file = joinTokensFromIndex(tokens, 2);
+                try {
+                    TrafficRecorder.start(file);
+                    System.out.println("Capturing traffic to " + file);
+                } catch (IOException | IllegalStateException e) {
+                    System.out.println("Could not start capture: " + e.getMessage());
+                }
+                break;
+
+            case "stop":
+                String summary = TrafficRecorder.stop();
+                if (summary != null) {
+                    System.out.println("Capture stopped: " + summary);
+                } else {
+                    System.out.println("Capture is not running.");
+                }
+                break;
+
+            case "status":
+                System.out.println(TrafficRecorder.describe());
+                break;
+
+            default:
+                System.out.println("Unknown capture command: " + subcommand);
+                System.out.println("Usage: capture <start|stop|status>");
         }
     }
 
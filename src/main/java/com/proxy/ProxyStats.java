@@ -9,6 +9,10 @@ public class ProxyStats {
     private static final AtomicLong networkFetches = new AtomicLong();
     private static final AtomicLong totalCacheHitTimeMs = new AtomicLong();
     private static final AtomicLong totalNetworkFetchTimeMs = new AtomicLong();
+    private static final AtomicLong peerHits = new AtomicLong();
+    private static final AtomicLong peerMisses = new AtomicLong();
+    private static final AtomicLong peerErrors = new AtomicLong();
+    private static final AtomicLong totalPeerHitTimeMs = new AtomicLong();
 
     public static void recordCacheHit(long durationMs) {
         cacheHits.incrementAndGet();
@@ -20,6 +24,19 @@ public class ProxyStats {
         totalNetworkFetchTimeMs.addAndGet(Math.max(0, durationMs));
     }
 
+    public static void recordPeerHit(long durationMs) {
+        peerHits.incrementAndGet();
+        totalPeerHitTimeMs.addAndGet(Math.max(0, durationMs));
+    }
+
+    public static void recordPeerMiss() {
+        peerMisses.incrementAndGet();
+    }
+
+    public static void recordPeerError() {
+        peerErrors.incrementAndGet();
+    }
+
     public static void recordBlockedRequest() {
         blockedRequests.incrementAndGet();
     }
@@ -30,9 +47,12 @@ public class ProxyStats {
         long fetches = networkFetches.get();
         long cacheTime = totalCacheHitTimeMs.get();
         long networkTime = totalNetworkFetchTimeMs.get();
+        long peerHitCount = peerHits.get();
+        long peerTime = totalPeerHitTimeMs.get();
 
         double avgCache = hits == 0 ? 0.0 : (double) cacheTime / hits;
         double avgNetwork = fetches == 0 ? 0.0 : (double) networkTime / fetches;
+        double avgPeer = peerHitCount == 0 ? 0.0 : (double) peerTime / peerHitCount;
         double improvementPercent = avgNetwork <= 0.0
                 ? 0.0
                 : ((avgNetwork - avgCache) / avgNetwork) * 100.0;
@@ -45,6 +65,13 @@ public class ProxyStats {
         report.append("- Avg cache response time: ").append(String.format("%.2f", avgCache)).append(" ms\n");
         report.append("- Avg network response time: ").append(String.format("%.2f", avgNetwork)).append(" ms\n");
         report.append("- Estimated avg speed-up from cache: ").append(String.format("%.2f", improvementPercent)).append("%");
+        if (PeerCache.isEnabled()) {
+            report.append('\n');
+            report.append("- Peer cache hits: ").append(peerHitCount).append('\n');
+            report.append("- Peer cache misses: ").append(peerMisses.get()).append('\n');
+            report.append("- Peer errors/timeouts: ").append(peerErrors.get()).append('\n');
+            report.append("- Avg peer response time: ").append(String.format("%.2f", avgPeer)).append(" ms");
+        }
         return report.toString();
     }
 }
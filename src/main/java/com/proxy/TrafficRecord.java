@@ -0,0 +1,134 @@
+package com.proxy;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One captured request. Records are stored back to back after a short file
+ * header as fixed fields followed by length-prefixed strings.
+ */
+public class TrafficRecord {
+
+    public enum Result {
+        CACHE_HIT, PEER_HIT, NETWORK, TUNNEL, BLOCKED, ERROR
+    }
+
+    public static final int MAGIC = 0x50585452; // "PXTR"
+    public static final int VERSION = 1;
+
+    private final long startEpochMs;
+    private final int durationMs;
+    private final Result result;
+    private final int statusCode;
+    private final long bytesSent;
+    private final String method;
+    private final String url;
+    private final List<String> headers;
+
+    public TrafficRecord(long startEpochMs, int durationMs, Result result, int statusCode, long bytesSent,
+                         String method, String url, List<String> headers) {
+        this.startEpochMs = startEpochMs;
+        this.durationMs = durationMs;
+        this.result = result;
+        this.statusCode = statusCode;
+        this.bytesSent = bytesSent;
+        this.method = method;
+        this.url = url;
+        this.headers = Collections.unmodifiableList(new ArrayList<>(headers));
+    }
+
+    public long getStartEpochMs() {
+        return startEpochMs;
+    }
+
+    public int getDurationMs() {
+        return durationMs;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    public static void writeFileHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    public static void readFileHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a traffic capture file");
+        }
+        int version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported traffic capture version: " + version);
+        }
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(startEpochMs);
+        out.writeInt(durationMs);
+        out.writeByte(result.ordinal());
+        out.writeShort(statusCode);
+        out.writeLong(bytesSent);
+        out.writeUTF(method);
+        out.writeUTF(url);
+        out.writeByte(headers.size());
+        for (String header : headers) {
+            out.writeUTF(header);
+        }
+    }
+
+    /**
+     * Reads the next record, or returns null at a clean end of file.
+     */
+    public static TrafficRecord readFrom(DataInputStream in) throws IOException {
+        long startEpochMs;
+        try {
+            startEpochMs = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        int durationMs = in.readInt();
+        int resultIndex = in.readUnsignedByte();
+        if (resultIndex >= Result.values().length) {
+            throw new IOException("Corrupt traffic record: result " + resultIndex);
+        }
+        int statusCode = in.readUnsignedShort();
+        long bytesSent = in.readLong();
+        String method = in.readUTF();
+        String url = in.readUTF();
+        int headerCount = in.readUnsignedByte();
+        List<String> headers = new ArrayList<>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(in.readUTF());
+        }
+        return new TrafficRecord(startEpochMs, durationMs, Result.values()[resultIndex], statusCode, bytesSent,
+                method, url, headers);
+    }
+}
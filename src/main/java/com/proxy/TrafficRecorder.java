@@ -0,0 +1,142 @@
+package com.proxy;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous traffic capture. Request threads only offer a record to a
+ * bounded queue; a single background thread writes the log. When the writer
+ * falls behind, records are dropped and counted instead of blocking requests.
+ */
+public class TrafficRecorder {
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int MAX_FIELD_LENGTH = 8192;
+
+    // Request headers that affect what the proxy serves (cache variants, ranges,
+    // revalidation). Credentials and cookies are deliberately never captured.
+    private static final String[] RECORDED_HEADERS = {
+            "Accept", "Accept-Encoding", "Accept-Language", "User-Agent",
+            "Range", "If-Range", "If-None-Match", "If-Modified-Since"
+    };
+
+    private static final AtomicLong recorded = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static volatile Capture capture;
+
+    public static synchronized void start(String path) throws IOException {
+        if (capture != null) {
+            throw new IllegalStateException("Capture already running to " + capture.path);
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 64 * 1024));
+        TrafficRecord.writeFileHeader(out);
+
+        recorded.set(0);
+        dropped.set(0);
+        Capture newCapture = new Capture(path, out);
+        Thread writer = new Thread(() -> writeLoop(newCapture), "proxy-capture");
+        writer.setDaemon(true);
+        newCapture.writer = writer;
+        capture = newCapture;
+        writer.start();
+    }
+
+    /**
+     * Stops the capture after the queued records are written. Returns a
+     * summary of the finished capture, or null when none was running.
+     */
+    public static synchronized String stop() {
+        Capture current = capture;
+        if (current == null) {
+            return null;
+        }
+        capture = null;
+        current.running = false;
+        try {
+            current.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return current.path + " | Recorded: " + recorded.get() + " | Dropped: " + dropped.get();
+    }
+
+    public static boolean isRecording() {
+        return capture != null;
+    }
+
+    public static String describe() {
+        Capture current = capture;
+        if (current == null) {
+            return "Capture is not running.";
+        }
+        return "Capturing to " + current.path + " | Recorded: " + recorded.get() + " | Dropped: " + dropped.get();
+    }
+
+    public static List<String> selectHeaders(List<String> requestHeaders) {
+        List<String> selected = new ArrayList<>();
+        for (String name : RECORDED_HEADERS) {
+            String value = HttpHeaders.find(requestHeaders, name);
+            if (value != null && value.length() < MAX_FIELD_LENGTH) {
+                selected.add(name + ": " + value);
+            }
+        }
+        return selected;
+    }
+
+    public static void record(TrafficRecord record) {
+        Capture current = capture;
+        if (current == null) {
+            return;
+        }
+        if (record.getUrl().length() > MAX_FIELD_LENGTH || record.getMethod().length() > MAX_FIELD_LENGTH
+                || !current.queue.offer(record)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static void writeLoop(Capture current) {
+        try (DataOutputStream out = current.out) {
+            while (current.running || !current.queue.isEmpty()) {
+                TrafficRecord record = current.queue.poll(200, TimeUnit.MILLISECONDS);
+                if (record == null) {
+                    out.flush();
+                    continue;
+                }
+                record.writeTo(out);
+                recorded.incrementAndGet();
+                if (current.queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Capture stopped after write error: " + e.getMessage());
+            capture = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Capture {
+
+        private final String path;
+        private final DataOutputStream out;
+        private final BlockingQueue<TrafficRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile boolean running = true;
+        private Thread writer;
+
+        private Capture(String path, DataOutputStream out) {
+            this.path = path;
+            this.out = out;
+        }
+    }
+}
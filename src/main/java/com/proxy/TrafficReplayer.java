@@ -0,0 +1,307 @@
+package com.proxy;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feeds a traffic capture back through a proxy, either as a timed replay of
+ * the original load or as a cache warm-up of the most requested objects.
+ */
+public class TrafficReplayer {
+
+    private static final int WARM_THREADS = 8;
+    private static final int REPLAY_TIMEOUT_MS = 30000;
+    private static final int DEFAULT_WARM_LIMIT = 1000;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong totalLatencyMs = new AtomicLong();
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong totalLagMs = new AtomicLong();
+    private final AtomicLong maxLagMs = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        String logPath = null;
+        String proxy = "127.0.0.1:8080";
+        String origin = null;
+        double speed = 1.0;
+        boolean allowUnsafe = false;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--proxy":
+                    proxy = value;
+                    i++;
+                    break;
+                case "--origin":
+                    origin = value;
+                    i++;
+                    break;
+                case "--speed":
+                    speed = Double.parseDouble(value);
+                    i++;
+                    break;
+                case "--allow-unsafe-methods":
+                    allowUnsafe = true;
+                    break;
+                default:
+                    logPath = args[i];
+            }
+        }
+
+        if (logPath == null || proxy == null) {
+            System.out.println("Usage: TrafficReplayer <capture-file> [--proxy host:port] [--speed factor] [--origin host:port]"
+                    + " [--allow-unsafe-methods]");
+            System.out.println("  --speed 2 replays twice as fast, --speed 0 sends as fast as possible");
+            System.out.println("  --origin sends every request to a local stand-in origin instead of the recorded host");
+            System.out.println("  Only GET/HEAD/OPTIONS are replayed against real origins; captures have no request bodies,");
+            System.out.println("  so other methods need --origin or --allow-unsafe-methods");
+            return;
+        }
+
+        int separatorIndex = proxy.lastIndexOf(':');
+        InetSocketAddress proxyAddress = new InetSocketAddress(proxy.substring(0, separatorIndex),
+                Integer.parseInt(proxy.substring(separatorIndex + 1)));
+
+        new TrafficReplayer().replay(readRecords(logPath), proxyAddress, speed, origin,
+                allowUnsafe || origin != null);
+    }
+
+    /**
+     * Pre-loads the cache with the most requested cacheable objects from a
+     * capture. Requests go through a temporary loopback listener served by the
+     * proxy's own handlers, so this can run before the public port accepts traffic.
+     */
+    public static void warm(String logPath, int limit, ExecutorService executor) throws IOException {
+        List<TrafficRecord> hotSet = selectHotSet(readRecords(logPath), limit > 0 ? limit : DEFAULT_WARM_LIMIT);
+        System.out.println("Warming cache with " + hotSet.size() + " objects from " + logPath);
+
+        try (ServerSocket warmSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptThread = new Thread(() -> {
+                while (!warmSocket.isClosed()) {
+                    try {
+                        executor.submit(new ClientHandler(warmSocket.accept()));
+                    } catch (SocketException e) {
+                        break;
+                    } catch (IOException e) {
+                        System.out.println("Warm-up accept error: " + e.getMessage());
+                    }
+                }
+            }, "proxy-warm-accept");
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+
+            InetSocketAddress warmAddress = new InetSocketAddress(warmSocket.getInetAddress(), warmSocket.getLocalPort());
+            TrafficReplayer replayer = new TrafficReplayer();
+            ExecutorService warmers = Executors.newFixedThreadPool(WARM_THREADS);
+            long startTime = System.nanoTime();
+            for (TrafficRecord record : hotSet) {
+                warmers.submit(() -> replayer.send(record, warmAddress, null));
+            }
+            warmers.shutdown();
+            try {
+                warmers.awaitTermination(10, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            replayer.printReport((System.nanoTime() - startTime) / 1_000_000);
+        }
+    }
+
+    private void replay(List<TrafficRecord> records, InetSocketAddress proxyAddress, double speed, String origin,
+                        boolean allowUnsafe) {
+        if (records.isEmpty()) {
+            System.out.println("Capture is empty.");
+            return;
+        }
+        System.out.println("Replaying " + records.size() + " requests via " + proxyAddress
+                + (speed > 0 ? " at " + speed + "x speed" : " as fast as possible"));
+
+        // One thread per in-flight request: a fixed pool would queue sends behind
+        // slow responses and quietly fall behind the original schedule.
+        ExecutorService senders = Executors.newCachedThreadPool();
+        long firstRecordMs = records.get(0).getStartEpochMs();
+        long startTime = System.nanoTime();
+
+        long skipped = 0;
+        for (TrafficRecord record : records) {
+            if ("CONNECT".equalsIgnoreCase(record.getMethod())) {
+                continue;
+            }
+            if (!allowUnsafe && !isSafeMethod(record.getMethod())) {
+                skipped++;
+                continue;
+            }
+            if (speed > 0) {
+                long dueMs = (long) ((record.getStartEpochMs() - firstRecordMs) / speed);
+                long waitMs = dueMs - (System.nanoTime() - startTime) / 1_000_000;
+                if (waitMs > 0) {
+                    try {
+                        Thread.sleep(waitMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                senders.submit(() -> {
+                    recordLag((System.nanoTime() - startTime) / 1_000_000 - dueMs);
+                    send(record, proxyAddress, origin);
+                });
+            } else {
+                senders.submit(() -> send(record, proxyAddress, origin));
+            }
+        }
+
+        senders.shutdown();
+        try {
+            senders.awaitTermination(1, TimeUnit.HOURS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        printReport((System.nanoTime() - startTime) / 1_000_000);
+        if (skipped > 0) {
+            System.out.println("- Skipped unsafe requests: " + skipped + " (use --origin or --allow-unsafe-methods)");
+        }
+    }
+
+    // How late a send started against the capture's timeline, so a replay that
+    // could not keep up with the original load says so in its report.
+    private void recordLag(long lagMs) {
+        long lag = Math.max(0, lagMs);
+        scheduled.incrementAndGet();
+        totalLagMs.addAndGet(lag);
+        maxLagMs.accumulateAndGet(lag, Math::max);
+    }
+
+    private static boolean isSafeMethod(String method) {
+        return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method)
+                || "OPTIONS".equalsIgnoreCase(method);
+    }
+
+    private void send(TrafficRecord record, InetSocketAddress proxyAddress, String origin) {
+        long requestStart = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.connect(proxyAddress, REPLAY_TIMEOUT_MS);
+            socket.setSoTimeout(REPLAY_TIMEOUT_MS);
+
+            URL url = new URL(record.getUrl());
+            String target = record.getUrl();
+            String hostHeader = url.getPort() == -1 ? url.getHost() : url.getHost() + ":" + url.getPort();
+            if (origin != null) {
+                hostHeader = origin;
+                target = url.getProtocol() + "://" + origin + url.getFile();
+            }
+
+            StringBuilder request = new StringBuilder();
+            request.append(record.getMethod()).append(' ').append(target).append(" HTTP/1.1\r\n");
+            request.append("Host: ").append(hostHeader).append("\r\n");
+            for (String header : record.getHeaders()) {
+                request.append(header).append("\r\n");
+            }
+            request.append("Connection: close\r\n\r\n");
+
+            OutputStream out = socket.getOutputStream();
+            out.write(request.toString().getBytes());
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[8192];
+            long received = 0;
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                received += bytesRead;
+            }
+
+            bytesReceived.addAndGet(received);
+            sent.incrementAndGet();
+            totalLatencyMs.addAndGet((System.nanoTime() - requestStart) / 1_000_000);
+        } catch (IOException e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    private void printReport(long elapsedMs) {
+        long completed = sent.get();
+        double avgLatency = completed == 0 ? 0.0 : (double) totalLatencyMs.get() / completed;
+        System.out.println("Replay finished:");
+        System.out.println("- Completed requests: " + completed);
+        System.out.println("- Failed requests: " + failed.get());
+        System.out.println("- Bytes received: " + bytesReceived.get());
+        System.out.println("- Elapsed: " + elapsedMs + " ms");
+        System.out.println("- Avg response time: " + String.format("%.2f", avgLatency) + " ms");
+        long onSchedule = scheduled.get();
+        if (onSchedule > 0) {
+            System.out.println("- Schedule lag: avg " + String.format("%.2f", (double) totalLagMs.get() / onSchedule)
+                    + " ms, max " + maxLagMs.get() + " ms");
+        }
+    }
+
+    // Most frequently requested GETs that were served successfully, without
+    // Range and any If-* header so the origin returns cacheable full objects.
+    private static List<TrafficRecord> selectHotSet(List<TrafficRecord> records, int limit) {
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, TrafficRecord> representatives = new HashMap<>();
+        for (TrafficRecord record : records) {
+            TrafficRecord.Result result = record.getResult();
+            boolean served = result == TrafficRecord.Result.CACHE_HIT || result == TrafficRecord.Result.PEER_HIT
+                    || result == TrafficRecord.Result.NETWORK;
+            int status = record.getStatusCode();
+            if (!"GET".equalsIgnoreCase(record.getMethod()) || !served || (status != 200 && status != 206)) {
+                continue;
+            }
+            String key = CacheKey.of(record.getMethod(), record.getUrl());
+            counts.merge(key, 1, Integer::sum);
+            representatives.putIfAbsent(key, record);
+        }
+
+        List<String> keys = new ArrayList<>(counts.keySet());
+        keys.sort((a, b) -> Integer.compare(counts.get(b), counts.get(a)));
+
+        List<TrafficRecord> hotSet = new ArrayList<>();
+        for (String key : keys.subList(0, Math.min(limit, keys.size()))) {
+            TrafficRecord record = representatives.get(key);
+            List<String> headers = new ArrayList<>();
+            for (String header : record.getHeaders()) {
+                String lowerHeader = header.toLowerCase();
+                if (!lowerHeader.startsWith("range:") && !lowerHeader.startsWith("if-")) {
+                    headers.add(header);
+                }
+            }
+            hotSet.add(new TrafficRecord(record.getStartEpochMs(), record.getDurationMs(), record.getResult(),
+                    record.getStatusCode(), record.getBytesSent(), record.getMethod(), record.getUrl(), headers));
+        }
+        return hotSet;
+    }
+
+    private static List<TrafficRecord> readRecords(String logPath) throws IOException {
+        List<TrafficRecord> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logPath)))) {
+            TrafficRecord.readFileHeader(in);
+            TrafficRecord record;
+            while ((record = TrafficRecord.readFrom(in)) != null) {
+                records.add(record);
+            }
+        }
+        records.sort((a, b) -> Long.compare(a.getStartEpochMs(), b.getStartEpochMs()));
+        return records;
+    }
+}
@@ -0,0 +1,59 @@
+package com.proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void parsesClosedRange() {
+        ByteRange range = ByteRange.parse("bytes=10-19", 1000);
+        assertEquals(10, range.getStart());
+        assertEquals(19, range.getEnd());
+        assertEquals(10, range.getLength());
+    }
+
+    @Test
+    public void openRangeRunsToEndOfEntity() {
+        ByteRange range = ByteRange.parse("bytes=995-", 1000);
+        assertEquals(995, range.getStart());
+        assertEquals(999, range.getEnd());
+    }
+
+    @Test
+    public void endBeyondEntityIsClamped() {
+        ByteRange range = ByteRange.parse("bytes=900-5000", 1000);
+        assertEquals(999, range.getEnd());
+    }
+
+    @Test
+    public void suffixRangeTakesLastBytes() {
+        ByteRange range = ByteRange.parse("bytes=-5", 1000);
+        assertEquals(995, range.getStart());
+        assertEquals(999, range.getEnd());
+
+        ByteRange whole = ByteRange.parse("bytes=-5000", 1000);
+        assertEquals(0, whole.getStart());
+    }
+
+    @Test
+    public void startPastEndOfEntityIsUnsatisfiable() {
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=5000-", 1000));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 1000));
+        assertFalse(ByteRange.UNSATISFIABLE.isSatisfiable());
+    }
+
+    @Test
+    public void malformedOrMultipleRangesFallBackToFullEntity() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-5", 1000));
+        assertNull(ByteRange.parse("bytes=0-5,10-15", 1000));
+        assertNull(ByteRange.parse("bytes=20-10", 1000));
+        assertNull(ByteRange.parse("bytes=a-b", 1000));
+        assertNull(ByteRange.parse("bytes=-", 1000));
+    }
+}
@@ -0,0 +1,78 @@
+package com.proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class CacheKeyTest {
+
+    @AfterEach
+    public void clearRules() {
+        CacheKey.unignoreQueryParam("rules.test", "utm_source");
+        CacheKey.setSortQuery("rules.test", false);
+    }
+
+    @Test
+    public void lowerCasesSchemeAndHostAndDropsDefaultPort() {
+        assertEquals("http://example.com/a?b=1",
+                CacheKey.normalizeUrl("HTTP://Example.COM:80/a?b=1"));
+        assertEquals("https://example.com/",
+                CacheKey.normalizeUrl("https://example.com:443"));
+        assertEquals("http://example.com:8080/a",
+                CacheKey.normalizeUrl("http://example.com:8080/a"));
+    }
+
+    @Test
+    public void dropsFragmentAndTrailingHostDot() {
+        assertEquals("http://example.com/a", CacheKey.normalizeUrl("http://example.com./a#section"));
+    }
+
+    @Test
+    public void pathCaseIsPreserved() {
+        assertEquals("http://example.com/A/b", CacheKey.normalizeUrl("http://example.com/A/b"));
+    }
+
+    @Test
+    public void decodesUnreservedEscapesAndUpperCasesTheRest() {
+        assertEquals("http://example.com/foo~bar%2Fbaz?q=a%3Db",
+                CacheKey.normalizeUrl("http://example.com/%66oo%7Ebar%2fbaz?q=a%3db"));
+    }
+
+    @Test
+    public void queryOrderIsKeptUnlessSortingIsEnabled() {
+        assertNotEquals(CacheKey.normalizeUrl("http://rules.test/a?b=1&c=2"),
+                CacheKey.normalizeUrl("http://rules.test/a?c=2&b=1"));
+
+        CacheKey.setSortQuery("rules.test", true);
+        assertEquals("http://rules.test/a?b=1&c=2", CacheKey.normalizeUrl("http://rules.test/a?c=2&b=1"));
+    }
+
+    @Test
+    public void ignoredParametersAreRemovedOnlyForTheirHost() {
+        CacheKey.ignoreQueryParam("rules.test", "utm_source");
+        assertEquals("http://rules.test/a?b=1", CacheKey.normalizeUrl("http://rules.test/a?utm_source=x&b=1"));
+        assertEquals("http://rules.test/a", CacheKey.normalizeUrl("http://rules.test/a?utm_source=x"));
+        assertEquals("http://other.test/a?utm_source=x",
+                CacheKey.normalizeUrl("http://other.test/a?utm_source=x"));
+    }
+
+    @Test
+    public void userInfoIsKeptInTheKey() {
+        assertEquals("http://alice:pw@example.com/private",
+                CacheKey.normalizeUrl("http://alice:pw@Example.com:80/private"));
+        assertNotEquals(CacheKey.of("GET", "http://alice:pw@example.com/private"),
+                CacheKey.of("GET", "http://example.com/private"));
+    }
+
+    @Test
+    public void keyCombinesMethodAndNormalizedUrl() {
+        assertEquals("GET:http://example.com/", CacheKey.of("get", "http://EXAMPLE.com"));
+    }
+
+    @Test
+    public void unparseableUrlsAreOnlyTrimmed() {
+        assertEquals("not a url", CacheKey.normalizeUrl("  not a url "));
+    }
+}
@@ -0,0 +1,93 @@
+package com.proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CacheManagerTest {
+
+    private static final String KEY = "GET:http://example.com/page";
+    private static final List<String> ENGLISH = Collections.singletonList("Accept-Language: en");
+    private static final List<String> FRENCH = Collections.singletonList("Accept-Language: fr");
+
+    private static CachedResponse response(String vary, String body) {
+        return CachedResponseTest.response("HTTP/1.1 200 OK\r\n"
+                + (vary == null ? "" : "Vary: " + vary + "\r\n")
+                + "Content-Length: " + body.length() + "\r\n\r\n" + body);
+    }
+
+    @BeforeEach
+    @AfterEach
+    public void clearCache() {
+        CacheManager.clear();
+    }
+
+    @Test
+    public void variantIsSelectedByVaryHeaders() {
+        CachedResponse english = response("Accept-Language", "hello");
+        CachedResponse french = response("Accept-Language", "bonjour");
+        assertTrue(CacheManager.put(KEY, ENGLISH, english));
+        assertTrue(CacheManager.put(KEY, FRENCH, french));
+
+        assertSame(english, CacheManager.get(KEY, ENGLISH));
+        assertSame(french, CacheManager.get(KEY, FRENCH));
+        assertNull(CacheManager.get(KEY, Collections.singletonList("Accept-Language: de")));
+        assertEquals(2, CacheManager.size());
+    }
+
+    @Test
+    public void responsesWithoutVaryIgnoreRequestHeaders() {
+        CachedResponse plain = response(null, "hello");
+        CacheManager.put(KEY, ENGLISH, plain);
+        assertSame(plain, CacheManager.get(KEY, FRENCH));
+    }
+
+    @Test
+    public void changedVaryListReplacesAllVariants() {
+        CacheManager.put(KEY, ENGLISH, response("Accept-Language", "hello"));
+        CacheManager.put(KEY, FRENCH, response("Accept-Language", "bonjour"));
+
+        CachedResponse encoded = response("Accept-Encoding", "plain");
+        CacheManager.put(KEY, ENGLISH, encoded);
+
+        assertEquals(1, CacheManager.size());
+        assertSame(encoded, CacheManager.get(KEY, FRENCH));
+        assertEquals(encoded.getSize(), CacheManager.totalBytes());
+    }
+
+    @Test
+    public void varyStarIsNeverCached() {
+        assertFalse(CacheManager.put(KEY, ENGLISH, response("*", "hello")));
+        assertFalse(CacheManager.put(KEY, ENGLISH, response("Accept-Language, *", "hello")));
+        assertFalse(CacheManager.contains(KEY));
+        assertEquals(0, CacheManager.totalBytes());
+    }
+
+    @Test
+    public void bytesAreAccountedWhenEntriesAreReplaced() {
+        CachedResponse first = response("Accept-Language", "hello");
+        CachedResponse replacement = response("Accept-Language", "hello again");
+        CachedResponse french = response("Accept-Language", "bonjour");
+
+        CacheManager.put(KEY, ENGLISH, first);
+        assertEquals(first.getSize(), CacheManager.totalBytes());
+
+        CacheManager.put(KEY, ENGLISH, replacement);
+        assertEquals(replacement.getSize(), CacheManager.totalBytes());
+
+        CacheManager.put(KEY, FRENCH, french);
+        assertEquals(replacement.getSize() + french.getSize(), CacheManager.totalBytes());
+
+        assertTrue(CacheManager.removeByUrl("http://example.com/page"));
+        assertEquals(0, CacheManager.totalBytes());
+    }
+}
@@ -0,0 +1,83 @@
+package com.proxy;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class CachedResponseTest {
+
+    static CachedResponse response(String raw) {
+        return CachedResponse.parse(raw.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void parsesStatusHeadersAndBody() {
+        CachedResponse response = response("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n"
+                + "Content-Length: 5\r\n\r\nhello");
+        assertEquals(200, response.getStatusCode());
+        assertEquals(Arrays.asList("Content-Type: text/plain", "Content-Length: 5"), response.getHeaderLines());
+        assertEquals("text/plain", response.getHeader("content-type"));
+        assertEquals(5, response.getBodyLength());
+        assertTrue(response.isComplete());
+        assertTrue(response.isRangeable());
+    }
+
+    @Test
+    public void rejectsMissingHeaderEndOrBadStatusLine() {
+        assertNull(CachedResponse.parse(null));
+        assertNull(response("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n"));
+        assertNull(response("hello\r\n\r\n"));
+        assertNull(response("HTTP/1.1 abc OK\r\n\r\n"));
+    }
+
+    @Test
+    public void statusCodeIsReadFromFirstChunk() {
+        byte[] chunk = "HTTP/1.1 404 Not Found\r\nContent-Le".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(404, CachedResponse.parseStatusCode(chunk, chunk.length));
+        assertEquals(201, CachedResponse.parseStatusCode("HTTP/1.0 201".getBytes(StandardCharsets.ISO_8859_1), 12));
+        assertEquals(0, CachedResponse.parseStatusCode("garbage".getBytes(StandardCharsets.ISO_8859_1), 7));
+        assertEquals(0, CachedResponse.parseStatusCode(new byte[0], 0));
+    }
+
+    @Test
+    public void bodyShorterThanContentLengthIsIncomplete() {
+        CachedResponse response = response("HTTP/1.1 200 OK\r\nContent-Length: 100\r\n\r\nshort!");
+        assertEquals(6, response.getBodyLength());
+        assertFalse(response.isComplete());
+        assertFalse(response.isRangeable());
+    }
+
+    @Test
+    public void unparseableContentLengthIsIncomplete() {
+        assertFalse(response("HTTP/1.1 200 OK\r\nContent-Length: lots\r\n\r\nabc").isComplete());
+    }
+
+    @Test
+    public void closeDelimitedBodyIsComplete() {
+        assertTrue(response("HTTP/1.1 200 OK\r\n\r\nanything").isComplete());
+    }
+
+    @Test
+    public void onlyIdentityEncoded200sAreRangeable() {
+        assertFalse(response("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n").isRangeable());
+        assertFalse(response("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n0\r\n\r\n")
+                .isRangeable());
+    }
+
+    @Test
+    public void writesBodyRanges() throws IOException {
+        CachedResponse response = response("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n0123456789");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.writeBodyRange(out, 2, 4);
+        assertArrayEquals("234".getBytes(StandardCharsets.ISO_8859_1), out.toByteArray());
+    }
+}
@@ -0,0 +1,67 @@
+package com.proxy;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ClientHandlerTest {
+
+    private static final List<String> NO_HEADERS = Collections.emptyList();
+
+    private static final CachedResponse COMPLETE = CachedResponseTest.response(
+            "HTTP/1.1 200 OK\r\nETag: \"v1\"\r\nLast-Modified: Mon, 01 Jan 2024 00:00:00 GMT\r\n"
+                    + "Content-Length: 5\r\n\r\nhello");
+
+    @Test
+    public void completeUnconditional200IsCacheable() {
+        assertTrue(ClientHandler.isCacheableAsFullObject(COMPLETE, NO_HEADERS));
+    }
+
+    @Test
+    public void non200AndUnparsedResponsesAreNotCacheable() {
+        assertFalse(ClientHandler.isCacheableAsFullObject(null, NO_HEADERS));
+        assertFalse(ClientHandler.isCacheableAsFullObject(
+                CachedResponseTest.response("HTTP/1.1 304 Not Modified\r\n\r\n"), NO_HEADERS));
+        assertFalse(ClientHandler.isCacheableAsFullObject(
+                CachedResponseTest.response("HTTP/1.1 206 Partial Content\r\nContent-Length: 2\r\n\r\nhe"),
+                NO_HEADERS));
+    }
+
+    @Test
+    public void truncatedBodyIsNotCacheable() {
+        assertFalse(ClientHandler.isCacheableAsFullObject(
+                CachedResponseTest.response("HTTP/1.1 200 OK\r\nContent-Length: 100\r\n\r\nshort!"), NO_HEADERS));
+    }
+
+    @Test
+    public void answersToConditionalRequestsAreNotCacheable() {
+        assertFalse(ClientHandler.isCacheableAsFullObject(COMPLETE,
+                Collections.singletonList("If-None-Match: \"v0\"")));
+        assertFalse(ClientHandler.isCacheableAsFullObject(COMPLETE,
+                Collections.singletonList("if-modified-since: Sun, 31 Dec 2023 00:00:00 GMT")));
+    }
+
+    @Test
+    public void missingIfRangeAlwaysMatches() {
+        assertTrue(ClientHandler.ifRangeMatches(null, COMPLETE));
+    }
+
+    @Test
+    public void ifRangeMatchesStrongETagOrLastModified() {
+        assertTrue(ClientHandler.ifRangeMatches("\"v1\"", COMPLETE));
+        assertFalse(ClientHandler.ifRangeMatches("\"v2\"", COMPLETE));
+        assertTrue(ClientHandler.ifRangeMatches("Mon, 01 Jan 2024 00:00:00 GMT", COMPLETE));
+        assertFalse(ClientHandler.ifRangeMatches("Tue, 02 Jan 2024 00:00:00 GMT", COMPLETE));
+    }
+
+    @Test
+    public void weakETagsNeverMatchIfRange() {
+        assertFalse(ClientHandler.ifRangeMatches("W/\"v1\"", COMPLETE));
+        CachedResponse weak = CachedResponseTest.response("HTTP/1.1 200 OK\r\nETag: W/\"v1\"\r\n\r\nhello");
+        assertFalse(ClientHandler.ifRangeMatches("W/\"v1\"", weak));
+    }
+}
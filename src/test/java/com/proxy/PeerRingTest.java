@@ -0,0 +1,87 @@
+package com.proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class PeerRingTest {
+
+    private static final String[] MEMBERS = {"127.0.0.1:9101", "127.0.0.1:9102", "127.0.0.1:9103"};
+
+    private static PeerRing ringOf(String... members) {
+        PeerRing ring = new PeerRing();
+        for (String member : members) {
+            ring.add(member);
+        }
+        return ring;
+    }
+
+    @Test
+    public void emptyRingHasNoOwner() {
+        assertNull(new PeerRing().ownerOf("GET:http://example.com/"));
+    }
+
+    @Test
+    public void singleMemberOwnsEveryKey() {
+        PeerRing ring = ringOf("127.0.0.1:9101");
+        for (int i = 0; i < 100; i++) {
+            assertEquals("127.0.0.1:9101", ring.ownerOf("GET:http://example.com/" + i));
+        }
+    }
+
+    @Test
+    public void ringsWithSameMembersAgreeRegardlessOfInsertionOrder() {
+        PeerRing first = ringOf(MEMBERS[0], MEMBERS[1], MEMBERS[2]);
+        PeerRing second = ringOf(MEMBERS[2], MEMBERS[0], MEMBERS[1]);
+        for (int i = 0; i < 500; i++) {
+            String key = "GET:http://example.com/" + i;
+            assertEquals(first.ownerOf(key), second.ownerOf(key));
+        }
+    }
+
+    @Test
+    public void removingMemberOnlyMovesItsOwnKeys() {
+        PeerRing ring = ringOf(MEMBERS);
+        Map<String, String> before = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            String key = "GET:http://example.com/" + i;
+            before.put(key, ring.ownerOf(key));
+        }
+
+        assertTrue(ring.remove(MEMBERS[2]));
+        before.forEach((key, owner) -> {
+            String after = ring.ownerOf(key);
+            assertNotEquals(MEMBERS[2], after);
+            if (!owner.equals(MEMBERS[2])) {
+                assertEquals(owner, after);
+            }
+        });
+    }
+
+    @Test
+    public void keysAreSpreadAcrossMembers() {
+        PeerRing ring = ringOf(MEMBERS);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(ring.ownerOf("GET:http://example.com/" + i), 1, Integer::sum);
+        }
+        for (String member : MEMBERS) {
+            assertTrue(counts.getOrDefault(member, 0) > 500, member + " owns " + counts.get(member));
+        }
+    }
+
+    @Test
+    public void duplicateAddAndUnknownRemoveAreRejected() {
+        PeerRing ring = ringOf(MEMBERS[0]);
+        assertFalse(ring.add(MEMBERS[0]));
+        assertFalse(ring.remove(MEMBERS[1]));
+        assertEquals(1, ring.members().size());
+    }
+}
@@ -0,0 +1,142 @@
+package com.proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ProxyConfigTest {
+
+    private static final long DEFAULT_CACHE_MAX_BYTES = 256L * 1024 * 1024;
+
+    // Console commands run after startup, which is when restart-only settings
+    // stop taking effect immediately.
+    @BeforeEach
+    public void markStarted() {
+        ProxyConfig.markStarted();
+    }
+
+    @AfterEach
+    public void restoreDefaults() throws IOException {
+        load("");
+    }
+
+    private static void load(String contents) throws IOException {
+        Path file = Files.createTempFile("proxy", ".properties");
+        try {
+            Files.writeString(file, contents);
+            ProxyConfig.load(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void parsesPlainNumbers() {
+        assertEquals(0, ProxyConfig.parseValue("0"));
+        assertEquals(8080, ProxyConfig.parseValue(" 8080 "));
+    }
+
+    @Test
+    public void suffixesArePowersOf1024() {
+        assertEquals(4L * 1024, ProxyConfig.parseValue("4k"));
+        assertEquals(512L * 1024 * 1024, ProxyConfig.parseValue("512M"));
+        assertEquals(2L * 1024 * 1024 * 1024, ProxyConfig.parseValue("2g"));
+    }
+
+    @Test
+    public void rejectsMissingAndMalformedValues() {
+        assertThrows(IllegalArgumentException.class, () -> ProxyConfig.parseValue(null));
+        assertThrows(IllegalArgumentException.class, () -> ProxyConfig.parseValue("  "));
+        assertThrows(IllegalArgumentException.class, () -> ProxyConfig.parseValue("k"));
+        assertThrows(IllegalArgumentException.class, () -> ProxyConfig.parseValue("12x"));
+        assertThrows(IllegalArgumentException.class, () -> ProxyConfig.parseValue("1.5m"));
+    }
+
+    @Test
+    public void rejectsValuesThatOverflow() {
+        assertThrows(IllegalArgumentException.class, () -> ProxyConfig.parseValue("99999999999g"));
+        assertThrows(IllegalArgumentException.class, () -> ProxyConfig.parseValue("99999999999999999999"));
+    }
+
+    @Test
+    public void liveSettingsApplyImmediatelyAndNotifyListeners() {
+        List<Long> changes = new ArrayList<>();
+        ProxyConfig.onChange(ProxyConfig.PEER_READ_TIMEOUT, changes::add);
+
+        assertTrue(ProxyConfig.set(ProxyConfig.PEER_READ_TIMEOUT, "75"));
+        assertTrue(ProxyConfig.set(ProxyConfig.PEER_READ_TIMEOUT, "75"));
+        assertEquals(75, ProxyConfig.getLong(ProxyConfig.PEER_READ_TIMEOUT));
+        assertEquals(List.of(75L), changes);
+    }
+
+    @Test
+    public void outOfRangeAndUnknownSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ProxyConfig.set(ProxyConfig.POOL_SIZE, "0"));
+        assertThrows(IllegalArgumentException.class, () -> ProxyConfig.set("no.such.key", "1"));
+        assertEquals(50, ProxyConfig.getLong(ProxyConfig.POOL_SIZE));
+    }
+
+    @Test
+    public void restartOnlySettingIsKeptPending() {
+        assertFalse(ProxyConfig.set(ProxyConfig.PROXY_PORT, "9999"));
+        assertEquals(8080, ProxyConfig.getLong(ProxyConfig.PROXY_PORT));
+        assertEquals(Long.valueOf(9999), ProxyConfig.getPending(ProxyConfig.PROXY_PORT));
+        assertTrue(ProxyConfig.describe().get(0).endsWith("[pending 9999 after restart]"));
+
+        assertFalse(ProxyConfig.set(ProxyConfig.PROXY_PORT, "8080"));
+        assertNull(ProxyConfig.getPending(ProxyConfig.PROXY_PORT));
+        assertTrue(ProxyConfig.describe().get(0).endsWith("[restart required]"));
+    }
+
+    @Test
+    public void reloadResetsKeysRemovedFromTheFile() throws IOException {
+        load("pool.size=8\ncache.maxBytes=1m\n");
+        assertEquals(8, ProxyConfig.getLong(ProxyConfig.POOL_SIZE));
+        assertEquals(1024 * 1024, ProxyConfig.getLong(ProxyConfig.CACHE_MAX_BYTES));
+
+        load("pool.size=4\n");
+        assertEquals(4, ProxyConfig.getLong(ProxyConfig.POOL_SIZE));
+        assertEquals(DEFAULT_CACHE_MAX_BYTES, ProxyConfig.getLong(ProxyConfig.CACHE_MAX_BYTES));
+    }
+
+    @Test
+    public void reloadNotifiesListenersOnlyOfRealChanges() throws IOException {
+        load("upstream.connectTimeout=2000\n");
+        List<Long> changes = new ArrayList<>();
+        ProxyConfig.onChange(ProxyConfig.UPSTREAM_CONNECT_TIMEOUT, changes::add);
+
+        load("upstream.connectTimeout=2000\n");
+        assertTrue(changes.isEmpty());
+        load("");
+        assertEquals(List.of(10000L), changes);
+    }
+
+    @Test
+    public void reloadKeepsRestartOnlySettingsPending() throws IOException {
+        load("proxy.port=9090\n");
+        assertEquals(8080, ProxyConfig.getLong(ProxyConfig.PROXY_PORT));
+        assertEquals(Long.valueOf(9090), ProxyConfig.getPending(ProxyConfig.PROXY_PORT));
+
+        load("");
+        assertNull(ProxyConfig.getPending(ProxyConfig.PROXY_PORT));
+    }
+
+    @Test
+    public void badEntriesAreSkippedOnLoad() throws IOException {
+        load("pool.size=abc\nno.such.key=1\nbuffer.size=4k\n");
+        assertEquals(50, ProxyConfig.getLong(ProxyConfig.POOL_SIZE));
+        assertEquals(4096, ProxyConfig.getLong(ProxyConfig.BUFFER_SIZE));
+    }
+}
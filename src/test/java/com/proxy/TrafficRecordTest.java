@@ -0,0 +1,57 @@
+package com.proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+public class TrafficRecordTest {
+
+    @Test
+    public void recordsSurviveWriteReadRoundTrip() throws IOException {
+        TrafficRecord first = new TrafficRecord(1_700_000_000_123L, 42, TrafficRecord.Result.CACHE_HIT, 206,
+                10, "GET", "http://example.com/video?x=1",
+                Arrays.asList("Range: bytes=0-9", "Accept-Language: en"));
+        TrafficRecord second = new TrafficRecord(1_700_000_000_456L, 0, TrafficRecord.Result.TUNNEL, 200,
+                5_000_000_000L, "CONNECT", "example.com:443", Collections.emptyList());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        TrafficRecord.writeFileHeader(out);
+        first.writeTo(out);
+        second.writeTo(out);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        TrafficRecord.readFileHeader(in);
+        assertSameRecord(first, TrafficRecord.readFrom(in));
+        assertSameRecord(second, TrafficRecord.readFrom(in));
+        assertNull(TrafficRecord.readFrom(in));
+    }
+
+    @Test
+    public void rejectsFilesWithoutCaptureHeader() {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(new byte[] {0, 1, 2, 3, 0, 1}));
+        assertThrows(IOException.class, () -> TrafficRecord.readFileHeader(in));
+    }
+
+    private static void assertSameRecord(TrafficRecord expected, TrafficRecord actual) {
+        assertEquals(expected.getStartEpochMs(), actual.getStartEpochMs());
+        assertEquals(expected.getDurationMs(), actual.getDurationMs());
+        assertEquals(expected.getResult(), actual.getResult());
+        assertEquals(expected.getStatusCode(), actual.getStatusCode());
+        assertEquals(expected.getBytesSent(), actual.getBytesSent());
+        assertEquals(expected.getMethod(), actual.getMethod());
+        assertEquals(expected.getUrl(), actual.getUrl());
+        assertEquals(expected.getHeaders(), actual.getHeaders());
+    }
+}